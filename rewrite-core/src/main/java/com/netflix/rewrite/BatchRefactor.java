@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite;
+
+import com.netflix.rewrite.internal.lang.NonNullApi;
+import com.netflix.rewrite.tree.Tr;
+import com.netflix.rewrite.visitor.refactor.RefactorVisitor;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Fixes many compilation units at once by running {@link Refactor#fix()} for each of them on a work-stealing
+ * {@link ForkJoinPool}.
+ * <p>
+ * Visitors keep mutable state while visiting a compilation unit, so they can't be shared between threads. Instead,
+ * each worker thread gets its own visitors from the supplier, e.g. by calling a {@link RefactoringProvider} method.
+ */
+@NonNullApi
+public class BatchRefactor {
+    private final ThreadLocal<List<RefactorVisitor>> visitors;
+    private final ForkJoinPool pool;
+    private final boolean fused;
+
+    private final Map<String, LongAdder> nanosByRule = new ConcurrentHashMap<>();
+
+    public BatchRefactor(Supplier<? extends Iterable<RefactorVisitor>> visitors) {
+        this(visitors, ForkJoinPool.commonPool(), false);
+    }
+
+    /**
+     * @param visitors Called once on each worker thread for fresh instances of the visitors to run.
+     * @param pool     The pool to fix compilation units on.
+     * @param fused    Whether to {@link Refactor#fused(boolean) fuse} visitors.
+     */
+    public BatchRefactor(Supplier<? extends Iterable<RefactorVisitor>> visitors, ForkJoinPool pool, boolean fused) {
+        this.visitors = ThreadLocal.withInitial(() -> {
+            List<RefactorVisitor> threadVisitors = new ArrayList<>();
+            visitors.get().forEach(threadVisitors::add);
+            return threadVisitors;
+        });
+        this.pool = pool;
+        this.fused = fused;
+    }
+
+    /**
+     * @return Results in the same order as the compilation units they were fixed from.
+     */
+    public List<RefactorResult> fix(List<Tr.CompilationUnit> cus) {
+        AtomicReferenceArray<RefactorResult> results = new AtomicReferenceArray<>(cus.size());
+        pool.invoke(new FixTask(cus, 0, cus.size(), results::set));
+
+        List<RefactorResult> ordered = new ArrayList<>(cus.size());
+        for (int i = 0; i < cus.size(); i++) {
+            ordered.add(results.get(i));
+        }
+        return ordered;
+    }
+
+    /**
+     * Fixes every compilation unit, handing each result to a callback as soon as it is ready rather than holding on
+     * to all of them. The callback is called concurrently from worker threads, in no particular order.
+     */
+    public void fix(List<Tr.CompilationUnit> cus, Consumer<RefactorResult> onResult) {
+        pool.invoke(new FixTask(cus, 0, cus.size(), (i, result) -> onResult.accept(result)));
+    }
+
+    /**
+     * @return Nanoseconds spent by each rule's visitors, summed over every compilation unit fixed so far.
+     */
+    public Map<String, Long> getNanosByRule() {
+        Map<String, Long> sums = new TreeMap<>();
+        nanosByRule.forEach((rule, nanos) -> sums.put(rule, nanos.sum()));
+        return sums;
+    }
+
+    private RefactorResult fix(Tr.CompilationUnit cu) {
+        Refactor refactor = cu.refactor().visit(visitors.get()).fused(fused);
+        RefactorResult result = refactor.fix();
+        refactor.getNanosByRule().forEach((rule, nanos) ->
+                nanosByRule.computeIfAbsent(rule, r -> new LongAdder()).add(nanos));
+        return result;
+    }
+
+    /**
+     * Splits its range of compilation units in half until single compilation units are left, so that idle workers
+     * can steal the halves of large or slow ranges.
+     */
+    private class FixTask extends RecursiveAction {
+        private final List<Tr.CompilationUnit> cus;
+        private final int from;
+        private final int to;
+        private final BiConsumer<Integer, RefactorResult> onResult;
+
+        private FixTask(List<Tr.CompilationUnit> cus, int from, int to, BiConsumer<Integer, RefactorResult> onResult) {
+            this.cus = cus;
+            this.from = from;
+            this.to = to;
+            this.onResult = onResult;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    onResult.accept(from, fix(cus.get(from)));
+                }
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new FixTask(cus, from, mid, onResult), new FixTask(cus, mid, to, onResult));
+        }
+    }
+}
@@ -0,0 +1,506 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite;
+
+import com.netflix.rewrite.internal.lang.NonNullApi;
+import com.netflix.rewrite.internal.lang.Nullable;
+import com.netflix.rewrite.tree.Type;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Opcodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A compact, memory-mapped index of the class names, fields, flags, interfaces, and supertypes found on a classpath,
+ * built with ASM from the classfiles in its jars and directories. A parser given an index finds the fields of types
+ * declared on the classpath whose symbols javac never completed, which would otherwise have no members at all.
+ * <p>
+ * Building an index reads every classfile on the classpath once. It is meant to be built as a separate step and
+ * reused by every parser that parses against the same dependencies, see {@link #open(List, Path)}.
+ * <p>
+ * Types mapped from an index are erased, since fields are indexed by their descriptors rather than their generic
+ * signatures. The types of fields are only known by name, as are supertypes and interfaces that aren't on the indexed
+ * classpath (like those of the JDK).
+ */
+@NonNullApi
+public class ClasspathIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ClasspathIndex.class);
+
+    private static final int MAGIC = 0x52574349;
+    private static final int VERSION = 1;
+
+    // header: magic, version, fingerprint, class count, and the offsets of the string, record, and class tables
+    private static final int HEADER_BYTES = 7 * Integer.BYTES;
+
+    private final ByteBuffer index;
+    private final int classCount;
+    private final int stringsStart;
+    private final int recordsStart;
+    private final int tableStart;
+
+    private final Map<String, IndexedClass> indexedClasses = new ConcurrentHashMap<>();
+
+    private ClasspathIndex(ByteBuffer index) {
+        if (index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not a classpath index of version " + VERSION);
+        }
+
+        this.index = index;
+        this.classCount = index.getInt(12);
+        this.stringsStart = index.getInt(16);
+        this.recordsStart = index.getInt(20);
+        this.tableStart = index.getInt(24);
+    }
+
+    /**
+     * Opens the index of a classpath stored in a file, first building it if the file doesn't exist yet or was
+     * built for a different classpath, or for classpath entries that have changed since.
+     */
+    public static ClasspathIndex open(List<Path> classpath, Path indexFile) {
+        String fingerprint = fingerprint(classpath);
+
+        if (Files.exists(indexFile)) {
+            try {
+                ClasspathIndex index = load(indexFile);
+                if (index.getFingerprint().equals(fingerprint)) {
+                    return index;
+                }
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                logger.debug("Rebuilding unreadable classpath index " + indexFile, e);
+            }
+        }
+
+        write(classpath, fingerprint, indexFile);
+        return load(indexFile);
+    }
+
+    public static ClasspathIndex load(Path indexFile) {
+        try (var channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new ClasspathIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int size() {
+        return classCount;
+    }
+
+    public boolean contains(String binaryName) {
+        return find(binaryName) >= 0;
+    }
+
+    /**
+     * @param binaryName     The binary name of a class, like {@code java.util.Map$Entry}.
+     * @param typeParameters The type parameters of the class where it is used.
+     * @return The class type, or null if the class isn't on the indexed classpath.
+     */
+    @Nullable
+    public Type.Class classType(String binaryName, List<Type> typeParameters, boolean relaxedClassTypeMatching) {
+        return classType(binaryName, typeParameters, emptyList(), relaxedClassTypeMatching);
+    }
+
+    /**
+     * @param binaryName The binary name of a class, like {@code java.util.Map$Entry}.
+     * @return The fields declared by the class, or null if the class isn't on the indexed classpath.
+     */
+    @Nullable
+    public List<Type.Var> fields(String binaryName) {
+        IndexedClass indexed = indexedClass(binaryName);
+        return indexed == null ? null : indexed.members;
+    }
+
+    @Nullable
+    private Type.Class classType(String binaryName, List<Type> typeParameters, List<String> stack,
+                                 boolean relaxedClassTypeMatching) {
+        IndexedClass indexed = indexedClass(binaryName);
+        if (indexed == null) {
+            return null;
+        }
+
+        List<String> stackWithName = new ArrayList<>(stack);
+        stackWithName.add(binaryName);
+
+        List<Type> interfaces = new ArrayList<>(indexed.interfaces.size());
+        for (String name : indexed.interfaces) {
+            if (stackWithName.contains(name)) {
+                interfaces.add(new Type.Cyclic(className(name)));
+            } else {
+                Type.Class iface = classType(name, emptyList(), stackWithName, relaxedClassTypeMatching);
+                interfaces.add(iface == null ? new Type.ShallowClass(className(name)) : iface);
+            }
+        }
+
+        Type.Class supertype = null;
+        if (indexed.superName != null) {
+            String name = indexed.superName;
+            supertype = classType(name, emptyList(), stackWithName, relaxedClassTypeMatching);
+            if (supertype == null) {
+                supertype = Type.Class.build(className(name));
+            }
+        }
+
+        return Type.Class.build(className(binaryName), indexed.members, typeParameters, interfaces, supertype,
+                relaxedClassTypeMatching);
+    }
+
+    /**
+     * Records are decoded once per class, since the supertypes of a class are looked up again for every class
+     * that extends them.
+     */
+    @Nullable
+    private IndexedClass indexedClass(String binaryName) {
+        IndexedClass indexed = indexedClasses.get(binaryName);
+        if (indexed == null) {
+            int record = find(binaryName);
+            if (record < 0) {
+                return null;
+            }
+            indexed = decode(record);
+            IndexedClass existing = indexedClasses.putIfAbsent(binaryName, indexed);
+            if (existing != null) {
+                indexed = existing;
+            }
+        }
+        return indexed;
+    }
+
+    private IndexedClass decode(int record) {
+        int at = recordsStart + record;
+        int access = index.getInt(at);
+        int superName = index.getInt(at + 4);
+        at += 8;
+
+        int interfaceCount = index.getInt(at);
+        at += 4;
+        List<String> interfaces = new ArrayList<>(interfaceCount);
+        for (int i = 0; i < interfaceCount; i++, at += 4) {
+            interfaces.add(string(index.getInt(at)));
+        }
+
+        int fieldCount = index.getInt(at);
+        at += 4;
+        List<Type.Var> members = new ArrayList<>(fieldCount);
+        for (int i = 0; i < fieldCount; i++, at += 12) {
+            members.add(new Type.Var(string(index.getInt(at)), type(string(index.getInt(at + 4))),
+                    ParserVisitor.flags(index.getInt(at + 8))));
+        }
+
+        return new IndexedClass(
+                superName >= 0 && (access & Opcodes.ACC_INTERFACE) == 0 ? string(superName) : null,
+                interfaces, Collections.unmodifiableList(members));
+    }
+
+    /**
+     * The types of fields are only known by name, which keeps mapping a class from walking the types of its fields,
+     * their fields, and so on.
+     */
+    @Nullable
+    private static Type type(String descriptor) {
+        switch (descriptor.charAt(0)) {
+            case 'Z':
+                return Type.Primitive.Boolean;
+            case 'B':
+                return Type.Primitive.Byte;
+            case 'C':
+                return Type.Primitive.Char;
+            case 'D':
+                return Type.Primitive.Double;
+            case 'F':
+                return Type.Primitive.Float;
+            case 'I':
+                return Type.Primitive.Int;
+            case 'J':
+                return Type.Primitive.Long;
+            case 'S':
+                return Type.Primitive.Short;
+            case '[':
+                return new Type.Array(type(descriptor.substring(1)));
+            case 'L':
+                return new Type.ShallowClass(className(descriptor.substring(1, descriptor.length() - 1).replace('/', '.')));
+            default:
+                return null;
+        }
+    }
+
+    private static String className(String binaryName) {
+        return binaryName.replace('$', '.');
+    }
+
+    /**
+     * @return The offset of the class' record, or -1 if it isn't indexed.
+     */
+    private int find(String binaryName) {
+        int low = 0;
+        int high = classCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = tableStart + mid * 8;
+            int cmp = string(index.getInt(entry)).compareTo(binaryName);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return index.getInt(entry + 4);
+            }
+        }
+        return -1;
+    }
+
+    private String getFingerprint() {
+        return string(index.getInt(8));
+    }
+
+    private String string(int offset) {
+        int at = stringsStart + offset;
+        byte[] bytes = new byte[index.getInt(at)];
+        index.duplicate().position(at + 4).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String fingerprint(List<Path> classpath) {
+        var fingerprint = new StringBuilder();
+        for (Path entry : classpath) {
+            // file size and modification time stand in for the content of classpath jars, which can be large
+            fingerprint.append(entry.toAbsolutePath().normalize());
+            try {
+                if (Files.isDirectory(entry)) {
+                    // recompiling a class changes neither the size nor the modification time of its directory
+                    long classfiles = 0;
+                    long size = 0;
+                    long lastModified = 0;
+                    try (Stream<Path> files = Files.walk(entry)) {
+                        for (Path classfile : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".class"))::iterator) {
+                            classfiles++;
+                            size += Files.size(classfile);
+                            lastModified = Math.max(lastModified, Files.getLastModifiedTime(classfile).toMillis());
+                        }
+                    }
+                    fingerprint.append(':').append(classfiles)
+                            .append(':').append(size)
+                            .append(':').append(lastModified);
+                } else {
+                    fingerprint.append(':').append(Files.size(entry))
+                            .append(':').append(Files.getLastModifiedTime(entry).toMillis());
+                }
+            } catch (IOException | UncheckedIOException ignored) {
+                // a missing classpath entry is still part of the fingerprint by name
+            }
+            fingerprint.append('\n');
+        }
+        return fingerprint.toString();
+    }
+
+    private static void write(List<Path> classpath, String fingerprint, Path indexFile) {
+        // like javac, the first of several classes with the same name on the classpath wins
+        Map<String, ClassRecord> records = new TreeMap<>();
+        for (Path entry : classpath) {
+            try {
+                if (Files.isDirectory(entry)) {
+                    try (Stream<Path> classfiles = Files.walk(entry)) {
+                        for (Path classfile : (Iterable<Path>) classfiles.filter(f -> f.toString().endsWith(".class"))::iterator) {
+                            read(Files.readAllBytes(classfile), records);
+                        }
+                    }
+                } else if (Files.exists(entry)) {
+                    try (var jar = new ZipFile(entry.toFile())) {
+                        for (var jarEntry : Collections.list(jar.entries())) {
+                            // classes for later releases of the JDK in multi-release jars are skipped
+                            if (jarEntry.getName().endsWith(".class") && !jarEntry.getName().startsWith("META-INF/")) {
+                                try (var in = jar.getInputStream(jarEntry)) {
+                                    read(in.readAllBytes(), records);
+                                }
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        logger.debug("Indexed {} classes from {} classpath entries", records.size(), classpath.size());
+
+        try {
+            var strings = new Table();
+            var recordBytes = new ByteArrayOutputStream();
+            var recordOut = new DataOutputStream(recordBytes);
+            var tableBytes = new ByteArrayOutputStream();
+            var tableOut = new DataOutputStream(tableBytes);
+
+            int fingerprintOffset = strings.offset(fingerprint);
+            for (ClassRecord record : records.values()) {
+                tableOut.writeInt(strings.offset(record.name));
+                tableOut.writeInt(recordOut.size());
+
+                recordOut.writeInt(record.access);
+                recordOut.writeInt(record.superName == null ? -1 : strings.offset(record.superName));
+                recordOut.writeInt(record.interfaces.size());
+                for (String iface : record.interfaces) {
+                    recordOut.writeInt(strings.offset(iface));
+                }
+                recordOut.writeInt(record.fields.size());
+                for (FieldRecord field : record.fields) {
+                    recordOut.writeInt(strings.offset(field.name));
+                    recordOut.writeInt(strings.offset(field.descriptor));
+                    recordOut.writeInt(field.access);
+                }
+            }
+
+            int stringsStart = HEADER_BYTES;
+            int recordsStart = stringsStart + strings.bytes.size();
+            int tableStart = recordsStart + recordBytes.size();
+
+            var directory = indexFile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+
+            var temp = Files.createTempFile(directory, "classpath", ".tmp");
+            try (var out = new DataOutputStream(Files.newOutputStream(temp))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(fingerprintOffset);
+                out.writeInt(records.size());
+                out.writeInt(stringsStart);
+                out.writeInt(recordsStart);
+                out.writeInt(tableStart);
+                strings.bytes.writeTo(out);
+                recordBytes.writeTo(out);
+                tableBytes.writeTo(out);
+            }
+
+            // written to a temporary file first so that concurrent readers never see a partial index
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void read(byte[] classfile, Map<String, ClassRecord> records) {
+        new ClassReader(classfile).accept(new ClassVisitor(Opcodes.ASM7) {
+            @Nullable
+            private ClassRecord record;
+
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                if ((access & Opcodes.ACC_MODULE) == 0) {
+                    String binaryName = name.replace('/', '.');
+                    if (!records.containsKey(binaryName)) {
+                        record = new ClassRecord(binaryName, access,
+                                superName == null ? null : superName.replace('/', '.'),
+                                Arrays.stream(interfaces).map(i -> i.replace('/', '.')).collect(toList()));
+                        records.put(binaryName, record);
+                    }
+                }
+            }
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                if (record != null && (access & Opcodes.ACC_SYNTHETIC) == 0) {
+                    record.fields.add(new FieldRecord(name, descriptor, access));
+                }
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    }
+
+    private static class IndexedClass {
+        @Nullable
+        private final String superName;
+
+        private final List<String> interfaces;
+        private final List<Type.Var> members;
+
+        private IndexedClass(@Nullable String superName, List<String> interfaces, List<Type.Var> members) {
+            this.superName = superName;
+            this.interfaces = interfaces;
+            this.members = members;
+        }
+    }
+
+    private static class ClassRecord {
+        private final String name;
+        private final int access;
+
+        @Nullable
+        private final String superName;
+
+        private final List<String> interfaces;
+        private final List<FieldRecord> fields = new ArrayList<>();
+
+        private ClassRecord(String name, int access, @Nullable String superName, List<String> interfaces) {
+            this.name = name;
+            this.access = access;
+            this.superName = superName;
+            this.interfaces = interfaces;
+        }
+    }
+
+    private static class FieldRecord {
+        private final String name;
+        private final String descriptor;
+        private final int access;
+
+        private FieldRecord(String name, String descriptor, int access) {
+            this.name = name;
+            this.descriptor = descriptor;
+            this.access = access;
+        }
+    }
+
+    /**
+     * Strings are written once each, and referred to by their offset from the start of the string table.
+     */
+    private static class Table {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> offsets = new HashMap<>();
+
+        private int offset(String s) throws IOException {
+            Integer offset = offsets.get(s);
+            if (offset == null) {
+                offset = out.size();
+                byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(utf8.length);
+                out.write(utf8);
+                offsets.put(s, offset);
+            }
+            return offset;
+        }
+    }
+}
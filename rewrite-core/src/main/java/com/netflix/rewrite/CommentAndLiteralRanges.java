@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite;
+
+import com.netflix.rewrite.internal.lang.NonNullApi;
+
+import java.util.Arrays;
+
+/**
+ * The sorted, non-overlapping ranges of a source file that are comments or string, text block, or character
+ * literals, found in one pass over the source so that scans for delimiters and whitespace can jump over them.
+ */
+@NonNullApi
+class CommentAndLiteralRanges {
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] comments = new boolean[16];
+    private int size;
+
+    CommentAndLiteralRanges(String source) {
+        int length = source.length();
+        for (int i = 0; i < length; i++) {
+            char c = source.charAt(i);
+            char next = i + 1 < length ? source.charAt(i + 1) : '\0';
+            if (c == '/' && next == '/') {
+                int end = source.indexOf('\n', i + 2);
+                i = add(i, end < 0 ? length : end, true);
+            } else if (c == '/' && next == '*') {
+                int end = source.indexOf("*/", i + 2);
+                i = add(i, end < 0 ? length : end + 2, true);
+            } else if (source.startsWith("\"\"\"", i)) {
+                int end = i + 3;
+                while (end < length && !source.startsWith("\"\"\"", end)) {
+                    end += source.charAt(end) == '\\' ? 2 : 1;
+                }
+                i = add(i, Math.min(end + 3, length), false);
+            } else if (c == '"' || c == '\'') {
+                int end = i + 1;
+                while (end < length && source.charAt(end) != c && source.charAt(end) != '\n') {
+                    end += source.charAt(end) == '\\' ? 2 : 1;
+                }
+                i = add(i, Math.min(end + 1, length), false);
+            }
+        }
+    }
+
+    /**
+     * @return The index of the first range that ends after the position, which is {@link #size()} if there is none.
+     */
+    int firstEndingAfter(int position) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (ends[mid] <= position) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int start(int range) {
+        return starts[range];
+    }
+
+    /**
+     * @return The exclusive end of the range.
+     */
+    int end(int range) {
+        return ends[range];
+    }
+
+    boolean isComment(int range) {
+        return comments[range];
+    }
+
+    /**
+     * @return The last position in the range, from which a scan continues.
+     */
+    private int add(int start, int end, boolean comment) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+            comments = Arrays.copyOf(comments, size * 2);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        comments[size] = comment;
+        size++;
+        return end - 1;
+    }
+}
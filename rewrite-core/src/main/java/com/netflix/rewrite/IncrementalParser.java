@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite;
+
+import com.netflix.rewrite.internal.lang.NonNullApi;
+import com.netflix.rewrite.internal.lang.Nullable;
+import com.netflix.rewrite.tree.Tr;
+import com.netflix.rewrite.tree.Tree;
+import com.netflix.rewrite.tree.Type;
+import com.netflix.rewrite.tree.TypeUtils;
+import com.netflix.rewrite.visitor.AstVisitor;
+import com.netflix.rewrite.visitor.ReferencedTypesVisitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Retains a single parser, and with it the javac symbols entered for a source set, so that when some source files
+ * change only they and the source files that depend on them have to be parsed again. Types declared in every other
+ * source file are resolved from the symbols entered in earlier rounds.
+ * <p>
+ * A source file depends on another when it names a type declared in it, or names a type declared in a source file
+ * that depends on it, and so on. A source file that only sees a changed type through the types it names (a method's
+ * return type inferred for a {@code var}, say, or a chain of field accesses) is reached through the source file that
+ * declares those, since that source file names the changed type itself. Dependencies that run through classes on the
+ * classpath rather than through other source files aren't followed.
+ * <p>
+ * Like {@link Parser}, this is NOT thread-safe.
+ */
+@NonNullApi
+public class IncrementalParser {
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalParser.class);
+
+    private final Parser parser;
+
+    @Nullable
+    private Path relativeTo;
+
+    private final Map<Path, Tr.CompilationUnit> cusByPath = new LinkedHashMap<>();
+    private final Map<Path, Set<String>> declaredTypesByPath = new HashMap<>();
+    private final Map<Path, Set<String>> referencedTypesByPath = new HashMap<>();
+
+    public IncrementalParser() {
+        this(null);
+    }
+
+    public IncrementalParser(@Nullable List<Path> classpath) {
+        this(classpath, Charset.defaultCharset(), false);
+    }
+
+    public IncrementalParser(@Nullable List<Path> classpath, Charset charset, boolean relaxedClassTypeMatching) {
+        this.parser = new Parser(classpath, charset, relaxedClassTypeMatching);
+    }
+
+    /**
+     * Parse a complete source set, replacing any source set that was parsed before.
+     */
+    public List<Tr.CompilationUnit> parse(List<Path> sourceFiles, @Nullable Path relativeTo) {
+        this.relativeTo = relativeTo;
+        cusByPath.clear();
+        declaredTypesByPath.clear();
+        referencedTypesByPath.clear();
+
+        parser.reset();
+        update(normalize(sourceFiles));
+
+        return getCompilationUnits();
+    }
+
+    /**
+     * Parse changed source files again, along with every source file that depends on one of them.
+     * Changed source files that no longer exist are removed from the source set, and those that were not part of the
+     * source set before are added to it.
+     *
+     * @return The compilation units that were parsed again.
+     */
+    public List<Tr.CompilationUnit> reparse(Collection<Path> changedFiles) {
+        List<Path> changed = normalize(changedFiles);
+
+        Set<Path> dirty = new LinkedHashSet<>();
+        List<Path> deleted = new ArrayList<>();
+        for (Path path : changed) {
+            if (Files.exists(path)) {
+                dirty.add(path);
+            } else {
+                deleted.add(path);
+            }
+        }
+
+        Set<Path> dependents = dependents(changed);
+        dependents.removeAll(changed);
+        dirty.addAll(dependents);
+
+        for (Path path : deleted) {
+            cusByPath.remove(path);
+            declaredTypesByPath.remove(path);
+            referencedTypesByPath.remove(path);
+        }
+
+        logger.debug("Reparsing {} changed and {} dependent source files, {} source files were deleted",
+                changed.size() - deleted.size(), dependents.size(), deleted.size());
+
+        // otherwise dependents would still resolve the types of deleted source files from earlier rounds
+        parser.removeSymbols(deleted);
+        parser.reset();
+        return update(new ArrayList<>(dirty));
+    }
+
+    /**
+     * @return Every source file that depends on one of the changed source files, directly or transitively.
+     */
+    private Set<Path> dependents(List<Path> changed) {
+        Map<String, Set<Path>> referencingPaths = new HashMap<>();
+        referencedTypesByPath.forEach((path, referenced) -> {
+            for (String type : referenced) {
+                referencingPaths.computeIfAbsent(type, t -> new HashSet<>()).add(path);
+            }
+        });
+
+        Set<Path> dependents = new LinkedHashSet<>();
+        Deque<Path> toVisit = new ArrayDeque<>(changed);
+        while (!toVisit.isEmpty()) {
+            for (String type : declaredTypesByPath.getOrDefault(toVisit.poll(), Collections.emptySet())) {
+                for (Path dependent : referencingPaths.getOrDefault(type, Collections.emptySet())) {
+                    if (dependents.add(dependent)) {
+                        toVisit.add(dependent);
+                    }
+                }
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * @return Compilation units for the whole source set, reflecting every parse so far.
+     */
+    public List<Tr.CompilationUnit> getCompilationUnits() {
+        return new ArrayList<>(cusByPath.values());
+    }
+
+    private List<Tr.CompilationUnit> update(List<Path> sourceFiles) {
+        List<Tr.CompilationUnit> parsed = parser.parse(sourceFiles, relativeTo);
+        for (int i = 0; i < parsed.size(); i++) {
+            Path path = sourceFiles.get(i);
+            Tr.CompilationUnit cu = parsed.get(i);
+
+            cusByPath.put(path, cu);
+            declaredTypesByPath.put(path, new DeclaredTypes().visit(cu));
+            referencedTypesByPath.put(path, new ReferencedTypesVisitor().visit(cu).stream()
+                    .map(Type.Class::getFullyQualifiedName)
+                    .collect(toSet()));
+        }
+        return parsed;
+    }
+
+    private static List<Path> normalize(Collection<Path> sourceFiles) {
+        return new ArrayList<>(new LinkedHashSet<>(sourceFiles.stream()
+                .filter(source -> source.getFileName().toString().endsWith(".java"))
+                .map(source -> source.toAbsolutePath().normalize())
+                .collect(toList())));
+    }
+
+    private static class DeclaredTypes extends AstVisitor<Set<String>> {
+        @Override
+        public Set<String> defaultTo(@Nullable Tree t) {
+            return new HashSet<>();
+        }
+
+        @Override
+        public Set<String> visitClassDecl(Tr.ClassDecl classDecl) {
+            Set<String> declared = super.visitClassDecl(classDecl);
+            Type.Class type = TypeUtils.asClass(classDecl.getType());
+            if (type != null) {
+                declared.add(type.getFullyQualifiedName());
+            }
+            return declared;
+        }
+    }
+}
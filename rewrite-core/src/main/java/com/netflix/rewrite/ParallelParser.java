@@ -0,0 +1,231 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite;
+
+import com.netflix.rewrite.internal.lang.NonNullApi;
+import com.netflix.rewrite.internal.lang.Nullable;
+import com.netflix.rewrite.tree.Tr;
+import com.netflix.rewrite.tree.TypeCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Parses a source set by sharding it across a pool of {@link Parser} instances, each of which has its own
+ * isolated javac context. Packages that refer to one another, directly or through other packages, are kept together
+ * in one shard, so that no shard has to parse the source files of another to attribute its own. Which packages a
+ * source file refers to is read from its imports and fully qualified names, without parsing it.
+ * <p>
+ * Every shard is still given the source roots of the whole source set as its sourcepath, so that the odd type
+ * that is referred to in some other way is still resolved during attribution, at the cost of parsing its source
+ * file once more. A source set whose packages all depend on one another can't be sharded, and is parsed no faster
+ * than with a single {@link Parser}. The time each shard takes is logged at debug level.
+ */
+@NonNullApi
+public class ParallelParser {
+    private static final Logger logger = LoggerFactory.getLogger(ParallelParser.class);
+
+    private static final Pattern packagePattern = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+
+    /**
+     * A package name followed by a type or a wildcard, as in imports and fully qualified references.
+     */
+    private static final Pattern qualifiedTypePattern = Pattern.compile("\\b([a-z_][\\w]*(?:\\.[a-z_][\\w]*)*)\\.(?:[A-Z]|\\*)");
+
+    @Nullable
+    private final List<Path> classpath;
+
+    private final Charset charset;
+    private final boolean relaxedClassTypeMatching;
+    private final int parallelism;
+
+    public ParallelParser() {
+        this(null);
+    }
+
+    public ParallelParser(@Nullable List<Path> classpath) {
+        this(classpath, Charset.defaultCharset(), false, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelParser(@Nullable List<Path> classpath, Charset charset, boolean relaxedClassTypeMatching, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, but was " + parallelism);
+        }
+
+        this.classpath = classpath;
+        this.charset = charset;
+        this.relaxedClassTypeMatching = relaxedClassTypeMatching;
+        this.parallelism = parallelism;
+    }
+
+    public List<Tr.CompilationUnit> parse(List<Path> sourceFiles) {
+        return parse(sourceFiles, null);
+    }
+
+    /**
+     * @return Compilation units in the same order as the source files they were parsed from.
+     */
+    public List<Tr.CompilationUnit> parse(List<Path> sourceFiles, @Nullable Path relativeTo) {
+        List<Path> javaSources = new ArrayList<>(new LinkedHashSet<>(sourceFiles.stream()
+                .filter(source -> source.getFileName().toString().endsWith(".java"))
+                .map(source -> source.toAbsolutePath().normalize())
+                .collect(toList())));
+
+        if (javaSources.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Path> sourcepath = Parser.sourceRoots(javaSources, charset);
+        List<List<Path>> shards = shard(javaSources);
+
+        logger.debug("Parsing {} source files in {} shards", javaSources.size(), shards.size());
+
+        // shards are parsed on pool threads, but intern their types in the cache bound to the calling thread
+        TypeCache typeCache = TypeCache.current();
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, shards.size()));
+        try {
+            List<Future<List<Tr.CompilationUnit>>> parsedShards = new ArrayList<>(shards.size());
+            for (List<Path> shard : shards) {
+                parsedShards.add(pool.submit(() -> {
+                    long start = System.nanoTime();
+                    List<Tr.CompilationUnit> cus = new Parser(classpath, sourcepath, charset, relaxedClassTypeMatching)
+                            .typeCache(typeCache)
+                            .parse(shard, relativeTo);
+                    logger.debug("Parsed shard of {} source files in {} ms", shard.size(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    return cus;
+                }));
+            }
+
+            Map<Path, Tr.CompilationUnit> cusByPath = new HashMap<>();
+            for (int i = 0; i < shards.size(); i++) {
+                List<Path> shard = shards.get(i);
+                List<Tr.CompilationUnit> cus = parsedShards.get(i).get();
+                for (int j = 0; j < shard.size(); j++) {
+                    cusByPath.put(shard.get(j), cus.get(j));
+                }
+            }
+
+            return javaSources.stream().map(cusByPath::get).collect(toList());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Failed to parse", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Groups source files by package, joins the groups of packages that refer to one another, and then distributes
+     * the joined groups among at most {@code parallelism} shards, assigning the largest remaining group to the least
+     * loaded shard each time.
+     */
+    List<List<Path>> shard(List<Path> sourceFiles) {
+        Map<String, List<Path>> packages = new LinkedHashMap<>();
+        Map<String, Set<String>> referencedPackages = new HashMap<>();
+        for (Path source : sourceFiles) {
+            String pkg;
+            Set<String> referenced = new HashSet<>();
+            try {
+                String text = Files.readString(source, charset);
+                Matcher packageMatcher = packagePattern.matcher(text);
+                pkg = packageMatcher.find() ? packageMatcher.group(1) : "";
+
+                Matcher qualifiedType = qualifiedTypePattern.matcher(text);
+                while (qualifiedType.find()) {
+                    referenced.add(qualifiedType.group(1));
+                }
+            } catch (IOException e) {
+                // the source file will fail to parse in whichever shard it lands in, so it is kept to itself
+                logger.debug("Unable to determine the package of " + source, e);
+                pkg = source.toString();
+            }
+
+            packages.computeIfAbsent(pkg, p -> new ArrayList<>()).add(source);
+            referencedPackages.computeIfAbsent(pkg, p -> new HashSet<>()).addAll(referenced);
+        }
+
+        Map<String, String> components = new HashMap<>();
+        referencedPackages.forEach((pkg, referenced) -> {
+            for (String other : referenced) {
+                if (packages.containsKey(other)) {
+                    join(components, pkg, other);
+                }
+            }
+        });
+
+        Map<String, List<Path>> joined = new LinkedHashMap<>();
+        packages.forEach((pkg, sources) -> joined.computeIfAbsent(component(components, pkg), c -> new ArrayList<>())
+                .addAll(sources));
+
+        List<List<Path>> groups = new ArrayList<>(joined.values());
+        groups.sort(Comparator.<List<Path>>comparingInt(List::size).reversed());
+
+        int shardCount = Math.min(parallelism, groups.size());
+        List<List<Path>> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ArrayList<>());
+        }
+
+        for (List<Path> group : groups) {
+            shards.stream()
+                    .min(Comparator.comparingInt(List::size))
+                    .ifPresent(shard -> shard.addAll(group));
+        }
+
+        return shards;
+    }
+
+    private static String component(Map<String, String> components, String pkg) {
+        String root = pkg;
+        for (String parent = components.get(root); parent != null; parent = components.get(root)) {
+            root = parent;
+        }
+        if (!root.equals(pkg)) {
+            // shortened, so that later lookups don't walk the same path again
+            components.put(pkg, root);
+        }
+        return root;
+    }
+
+    private static void join(Map<String, String> components, String pkg, String other) {
+        String root = component(components, pkg);
+        String otherRoot = component(components, other);
+        if (!root.equals(otherRoot)) {
+            components.put(otherRoot, root);
+        }
+    }
+}
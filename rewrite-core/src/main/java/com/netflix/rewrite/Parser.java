@@ -19,6 +19,9 @@ import com.netflix.rewrite.internal.lang.NonNullApi;
 import com.netflix.rewrite.internal.lang.Nullable;
 import com.netflix.rewrite.tree.Formatting;
 import com.netflix.rewrite.tree.Tr;
+import com.netflix.rewrite.tree.TypeCache;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symtab;
 import com.sun.tools.javac.comp.Annotate;
 import com.sun.tools.javac.comp.Check;
 import com.sun.tools.javac.comp.Enter;
@@ -26,6 +29,7 @@ import com.sun.tools.javac.comp.Modules;
 import com.sun.tools.javac.file.JavacFileManager;
 import com.sun.tools.javac.main.JavaCompiler;
 import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.TreeScanner;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.Log;
 import com.sun.tools.javac.util.Options;
@@ -35,12 +39,15 @@ import org.slf4j.LoggerFactory;
 import javax.tools.JavaFileManager;
 import javax.tools.StandardLocation;
 import java.io.*;
+import java.net.URI;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -48,15 +55,21 @@ import java.util.stream.Stream;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static java.util.stream.StreamSupport.stream;
 
 /**
  * This parser is NOT thread-safe, as the OpenJDK parser maintains in-memory caches in static state.
+ * Use {@link ParallelParser} to parse a source set across multiple threads.
  */
 @NonNullApi
 public class Parser {
     private static final Logger logger = LoggerFactory.getLogger(Parser.class);
 
+    private static final Pattern packagePattern = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;");
+
+    private static final Pattern classPattern = Pattern.compile("(class|interface|enum)\\s*(<[^>]*>)?\\s+(\\w+)");
+
     /**
      * When true, enables a parser to use class types from the in-memory type cache rather than performing
      * a deep equality check. Useful when deep class types have already been built from a separate parsing phase
@@ -68,8 +81,29 @@ public class Parser {
     @Nullable
     private final List<Path> classpath;
 
+    /**
+     * Roots from which javac may lazily enter types that are referenced by, but not part of, the set of
+     * source files being parsed. Allows a subset of a source set to be parsed with full type attribution.
+     */
+    @Nullable
+    private final List<Path> sourcepath;
+
     private final Charset charset;
 
+    /**
+     * Types, identifiers, and formatting of the compilation units this parser builds are interned here.
+     */
+    private TypeCache typeCache = TypeCache.current();
+
+    /**
+     * Present when class types are built lazily.
+     */
+    @Nullable
+    private ParserVisitor.LazyClassTypes lazyClassTypes;
+
+    @Nullable
+    private ClasspathIndex classpathIndex;
+
     private final JavacFileManager pfm;
 
     private final Context context = new Context();
@@ -97,6 +131,52 @@ public class Parser {
                 .collect(toList());
     }
 
+    /**
+     * Infer the source roots of a set of source files from their package declarations, suitable for use as a
+     * parser's sourcepath. Only one source file per directory is inspected, since the files in a directory
+     * are expected to share a package.
+     *
+     * @param sourceFiles The source files to find roots for.
+     * @param charset     The charset the source files are encoded with.
+     * @return The distinct source roots, in the order they were first encountered.
+     */
+    public static List<Path> sourceRoots(List<Path> sourceFiles, Charset charset) {
+        Set<Path> roots = new LinkedHashSet<>();
+        Set<Path> inspectedDirs = new HashSet<>();
+
+        for (Path sourceFile : sourceFiles) {
+            var dir = sourceFile.toAbsolutePath().normalize().getParent();
+            if (dir == null || !inspectedDirs.add(dir)) {
+                continue;
+            }
+
+            try (var lines = Files.lines(sourceFile, charset)) {
+                var pkg = lines
+                        .map(packagePattern::matcher)
+                        .filter(Matcher::find)
+                        .map(m -> m.group(1))
+                        .findFirst()
+                        .orElse("");
+
+                if (pkg.isEmpty()) {
+                    roots.add(dir);
+                } else if (dir.endsWith(pkg.replace('.', File.separatorChar))) {
+                    var root = dir;
+                    for (int i = pkg.split("\\.").length; i > 0 && root != null; i--) {
+                        root = root.getParent();
+                    }
+                    if (root != null) {
+                        roots.add(root);
+                    }
+                }
+            } catch (IOException | UncheckedIOException e) {
+                logger.debug("Unable to determine the package of " + sourceFile, e);
+            }
+        }
+
+        return new ArrayList<>(roots);
+    }
+
     public Parser() {
         this(null, Charset.defaultCharset(), false);
     }
@@ -106,7 +186,12 @@ public class Parser {
     }
 
     public Parser(@Nullable List<Path> classpath, Charset charset, boolean relaxedClassTypeMatching) {
+        this(classpath, null, charset, relaxedClassTypeMatching);
+    }
+
+    public Parser(@Nullable List<Path> classpath, @Nullable List<Path> sourcepath, Charset charset, boolean relaxedClassTypeMatching) {
         this.classpath = classpath;
+        this.sourcepath = sourcepath;
         this.charset = charset;
         this.relaxedClassTypeMatching = relaxedClassTypeMatching;
         this.pfm = new JavacFileManager(context, true, charset);
@@ -142,7 +227,69 @@ public class Parser {
         }));
     }
 
+    /**
+     * Intern the types of the compilation units this parser builds in a cache other than the one that was bound to
+     * the thread that constructed it, so that they can be reclaimed along with the compilation units that
+     * refer to them.
+     */
+    public Parser typeCache(TypeCache typeCache) {
+        this.typeCache = typeCache;
+        return this;
+    }
+
+    public TypeCache getTypeCache() {
+        return typeCache;
+    }
+
+    /**
+     * Build class types whose members, interfaces, and supertype are only resolved from javac's symbols when they are
+     * first needed, which makes parsing much cheaper for refactoring that only looks at the fully qualified names of
+     * types. Lazily built class types are exact by construction, so relaxed class type matching doesn't apply to them.
+     * <p>
+     * Until every class type it built is resolved, or no longer referenced, this parser's symbols stay in memory.
+     * Lazily built class types are only shared by the compilation units of one parser, and each parser that builds
+     * them needs a {@link #typeCache(TypeCache)} of its own, which it reserves the first time it parses.
+     *
+     * @see TypeCache#reserveForLazyTypes(Object)
+     */
+    public Parser lazyTypeAttribution(boolean lazyTypeAttribution) {
+        this.lazyClassTypes = lazyTypeAttribution ? new ParserVisitor.LazyClassTypes(context) : null;
+        return this;
+    }
+
+    /**
+     * Find the fields of classes on the classpath whose symbols javac never completed from an index of it, which
+     * would otherwise have no members at all.
+     */
+    public Parser classpathIndex(@Nullable ClasspathIndex classpathIndex) {
+        this.classpathIndex = classpathIndex;
+        return this;
+    }
+
     public List<Tr.CompilationUnit> parse(List<Path> sourceFiles, @Nullable Path relativeTo) {
+        return parseLazily(sourceFiles, relativeTo).collect(toList());
+    }
+
+    /**
+     * Symbol entering and attribution happens for all source files up front, but each compilation unit is only
+     * converted to a Rewrite AST when the stream reaches it. The bodies of the OpenJDK AST are released as soon as
+     * their conversion completes, so the OpenJDK and Rewrite ASTs of the whole source set are never held
+     * in memory at the same time.
+     *
+     * @return A sequential stream of compilation units, in the order of the source files they were parsed from.
+     */
+    public Stream<Tr.CompilationUnit> parseLazily(List<Path> sourceFiles, @Nullable Path relativeTo) {
+        // each source file is read once, for both javac and the parser visitor
+        return parseSourceFiles(filterSourceFiles(sourceFiles).stream()
+                .map(source -> new SourceFile(Paths.get(source.toUri()), charset))
+                .collect(toList()), relativeTo);
+    }
+
+    private Stream<Tr.CompilationUnit> parseSourceFiles(Collection<SourceFile> sourceFiles, @Nullable Path relativeTo) {
+        if (lazyClassTypes != null) {
+            typeCache.reserveForLazyTypes(lazyClassTypes);
+        }
+
         if (classpath != null) { // override classpath
             if (context.get(JavaFileManager.class) != pfm) {
                 throw new IllegalStateException("JavaFileManager has been forked unexpectedly");
@@ -155,42 +302,78 @@ public class Parser {
             }
         }
 
-        var fileObjects = pfm.getJavaFileObjects(filterSourceFiles(sourceFiles).toArray(Path[]::new));
-        var cus = stream(fileObjects.spliterator(), false)
-                .collect(Collectors.toMap(p -> Paths.get(p.toUri()), compiler::parse,
+        if (sourcepath != null) {
+            try {
+                pfm.setLocation(StandardLocation.SOURCE_PATH, sourcepath.stream().map(Path::toFile).collect(toList()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        var cus = sourceFiles.stream()
+                .collect(Collectors.toMap(SourceFile::getPath, compiler::parse,
                         (e2, e1) -> e1, LinkedHashMap::new));
 
-        try {
-            initModules(cus.values());
-            enterAll(cus.values());
+        // lazily built class types from earlier parses may be resolving their symbols on other threads
+        synchronized (context) {
+            try {
+                initModules(cus.values());
+                enterAll(cus.values());
+
+                // For some reason this is necessary in JDK 9+, where the the internal block counter that
+                // annotationsBlocked() tests against remains >0 after attribution.
+                Annotate annotate = Annotate.instance(context);
+                while (annotate.annotationsBlocked()) {
+                    annotate.unblockAnnotations(); // also flushes once unblocked
+                }
 
-            // For some reason this is necessary in JDK 9+, where the the internal block counter that
-            // annotationsBlocked() tests against remains >0 after attribution.
-            Annotate annotate = Annotate.instance(context);
-            while (annotate.annotationsBlocked()) {
-                annotate.unblockAnnotations(); // also flushes once unblocked
+                compiler.attribute(compiler.todo);
+            } catch (Throwable t) {
+                // when symbol entering fails on problems like missing types, attribution can often times proceed
+                // unhindered, but it sometimes cannot (so attribution is always a BEST EFFORT in the presence of errors)
+                logger.warn("Failed symbol entering or attribution", t);
             }
-
-            compiler.attribute(compiler.todo);
-        } catch (Throwable t) {
-            // when symbol entering fails on problems like missing types, attribution can often times proceed
-            // unhindered, but it sometimes cannot (so attribution is always a BEST EFFORT in the presence of errors)
-            logger.warn("Failed symbol entering or attribution", t);
         }
 
-        return cus.entrySet().stream().map(cuByPath -> {
-            var path = cuByPath.getKey();
-            logger.trace("Building AST for {}", path.toAbsolutePath().getFileName());
-            try {
-                ParserVisitor parser = new ParserVisitor(
-                        relativeTo == null ? path : relativeTo.relativize(path),
-                        Files.readString(path, charset),
-                        relaxedClassTypeMatching);
-                return (Tr.CompilationUnit) parser.scan(cuByPath.getValue(), Formatting.EMPTY);
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
+        var remaining = cus.entrySet().iterator();
+        return stream(new Spliterators.AbstractSpliterator<Tr.CompilationUnit>(cus.size(), Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Tr.CompilationUnit> action) {
+                if (!remaining.hasNext()) {
+                    return false;
+                }
+
+                var cuByPath = remaining.next();
+                remaining.remove();
+
+                var path = cuByPath.getKey();
+                logger.trace("Building AST for {}", path.toAbsolutePath().getFileName());
+
+                var sourceFile = (SourceFile) cuByPath.getValue().getSourceFile();
+
+                Tr.CompilationUnit cu;
+                try (var scope = typeCache.bind()) {
+                    ParserVisitor parser = new ParserVisitor(
+                            relativeTo == null ? path : relativeTo.relativize(path),
+                            sourceFile.getCharContent(true),
+                            relaxedClassTypeMatching,
+                            lazyClassTypes,
+                            classpathIndex);
+                    synchronized (context) {
+                        cu = (Tr.CompilationUnit) parser.scan(cuByPath.getValue(), Formatting.EMPTY);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    release(cuByPath.getValue());
+                    sourceFile.release();
+                }
+
+                // the consumer runs with whichever cache its own thread has bound
+                action.accept(cu);
+                return true;
             }
-        }).collect(toList());
+        }, false);
     }
 
     public Tr.CompilationUnit parse(String source, String whichDependsOn) {
@@ -205,45 +388,22 @@ public class Parser {
         return parse(sourceFiles, null);
     }
 
+    /**
+     * Parse a source snippet, along with the snippets it depends on, without touching the file system. Each snippet
+     * is named after the first class, interface, or enum it declares.
+     */
     public Tr.CompilationUnit parse(String source, String... whichDependOn) {
-        try {
-            Path temp = Files.createTempDirectory("sources");
-
-            var classPattern = Pattern.compile("(class|interface|enum)\\s*(<[^>]*>)?\\s+(\\w+)");
+        Function<String, SourceFile> sourceFile = sourceText -> {
+            var classMatcher = classPattern.matcher(sourceText);
+            return new SourceFile(Paths.get((classMatcher.find() ? classMatcher.group(3) : null) + ".java"), sourceText);
+        };
 
-            Function<String, String> simpleName = sourceStr -> {
-                var classMatcher = classPattern.matcher(sourceStr);
-                return classMatcher.find() ? classMatcher.group(3) : null;
-            };
+        List<Tr.CompilationUnit> cus = parseSourceFiles(Stream.concat(
+                Arrays.stream(whichDependOn).map(sourceFile),
+                Stream.of(sourceFile.apply(source))
+        ).collect(toList()), null).collect(toList());
 
-            Function<String, Path> sourceFile = sourceText -> {
-                var file = temp.resolve(simpleName.apply(sourceText) + ".java");
-                try {
-                    Files.writeString(file, sourceText);
-                } catch (IOException e) {
-                    throw new UncheckedIOException(e);
-                }
-                return file;
-            };
-
-            try {
-                List<Tr.CompilationUnit> cus = parse(Stream.concat(
-                        Arrays.stream(whichDependOn).map(sourceFile),
-                        Stream.of(sourceFile.apply(source))
-                ).collect(toList()));
-
-                return cus.get(cus.size() - 1);
-            } finally {
-                // delete temp recursively
-                //noinspection ResultOfMethodCallIgnored
-                Files.walk(temp)
-                        .sorted(Comparator.reverseOrder())
-                        .map(Path::toFile)
-                        .forEach(File::delete);
-            }
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        return cus.get(cus.size() - 1);
     }
 
     /**
@@ -256,6 +416,34 @@ public class Parser {
         Check.instance(context).newRound();
     }
 
+    /**
+     * Remove the symbols of the classes declared in source files that no longer exist, so that source files parsed
+     * afterwards which still refer to those classes no longer resolve them.
+     */
+    void removeSymbols(Collection<Path> deletedSourceFiles) {
+        Set<URI> deleted = deletedSourceFiles.stream().map(Path::toUri).collect(toSet());
+        var syms = Symtab.instance(context);
+
+        synchronized (context) {
+            List<Symbol.ClassSymbol> classes = new ArrayList<>();
+            for (Symbol.ClassSymbol c : syms.getAllClasses()) {
+                if (c.sourcefile != null && deleted.contains(c.sourcefile.toUri())) {
+                    classes.add(c);
+                }
+            }
+
+            for (Symbol.ClassSymbol c : classes) {
+                syms.removeClass(c.packge().modle, c.flatname);
+                if (c.owner instanceof Symbol.PackageSymbol) {
+                    var pkg = (Symbol.PackageSymbol) c.owner;
+                    if (pkg.members_field != null) {
+                        pkg.members_field.remove(c);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Initialize modules
      */
@@ -274,6 +462,21 @@ public class Parser {
         enter.main(compilationUnits);
     }
 
+    /**
+     * Javac's per-class environments keep class declarations reachable for the life of the context, so
+     * once a compilation unit has been converted we drop the trees underneath its class declarations.
+     */
+    private void release(JCTree.JCCompilationUnit cu) {
+        new TreeScanner() {
+            @Override
+            public void visitClassDef(JCTree.JCClassDecl classDecl) {
+                super.visitClassDef(classDecl);
+                classDecl.defs = com.sun.tools.javac.util.List.nil();
+            }
+        }.scan(cu);
+        cu.defs = com.sun.tools.javac.util.List.nil();
+    }
+
     private static class ResettableLog extends Log {
         protected ResettableLog(Context context) {
             super(context);
@@ -281,6 +484,10 @@ public class Parser {
 
         public void reset() {
             sourceMap.clear();
+
+            // otherwise errors from earlier rounds stop the compiler from attributing later ones
+            nerrors = 0;
+            nwarnings = 0;
         }
     }
 
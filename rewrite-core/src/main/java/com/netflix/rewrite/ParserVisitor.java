@@ -27,11 +27,13 @@ import com.sun.tools.javac.code.TypeTag;
 import com.sun.tools.javac.tree.EndPosTable;
 import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.*;
+import lombok.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.Name;
+import javax.tools.JavaFileObject;
 import java.lang.reflect.Field;
 import java.nio.file.Path;
 import java.util.*;
@@ -58,17 +60,50 @@ import static java.util.stream.StreamSupport.stream;
 public class ParserVisitor extends TreePathScanner<com.netflix.rewrite.tree.Tree, Formatting> {
     private static final Logger logger = LoggerFactory.getLogger(ParserVisitor.class);
 
+    private static final Pattern staticPattern = Pattern.compile("\\G\\s+static");
+    private static final Pattern dimensionPattern = Pattern.compile("\\G(\\s*)\\[(\\s*)]");
+    private static final Pattern varargsPattern = Pattern.compile("(\\s*)\\.{3}");
+    private static final Pattern varargsSkipPattern = Pattern.compile("\\G(\\s*)\\.{3}");
+
     private final Path path;
     private final String source;
     private final boolean relaxedClassTypeMatching;
 
+    /**
+     * Found once, so that scans for delimiters and whitespace jump over comments and literals instead of
+     * tracking whether each character is inside of one.
+     */
+    private final CommentAndLiteralRanges commentsAndLiterals;
+
+    private final OriginalSource originalSource;
+
+    @Nullable
+    private final LazyClassTypes lazyClassTypes;
+
+    @Nullable
+    private final ClasspathIndex classpathIndex;
+
+    /**
+     * Lazily built class types are resolved against the cache that was bound while the compilation unit was built.
+     */
+    private final TypeCache typeCache = TypeCache.current();
+
     private EndPosTable endPosTable;
     private int cursor = 0;
 
     public ParserVisitor(Path path, String source, boolean relaxedClassTypeMatching) {
+        this(path, source, relaxedClassTypeMatching, null, null);
+    }
+
+    ParserVisitor(Path path, String source, boolean relaxedClassTypeMatching, @Nullable LazyClassTypes lazyClassTypes,
+                  @Nullable ClasspathIndex classpathIndex) {
         this.path = path;
         this.source = source;
+        this.commentsAndLiterals = new CommentAndLiteralRanges(source);
+        this.originalSource = new OriginalSource(source);
         this.relaxedClassTypeMatching = relaxedClassTypeMatching;
+        this.lazyClassTypes = lazyClassTypes;
+        this.classpathIndex = classpathIndex;
     }
 
     @Override
@@ -97,12 +132,8 @@ public class ParserVisitor extends TreePathScanner<com.netflix.rewrite.tree.Tree
 
             args = new Tr.Annotation.Arguments(randomId(), expressions, format(argsPrefix));
         } else {
-            var remaining = source.substring(cursor, endPos(node));
-
-            // NOTE: technically, if there is code like this, we have a bug, but seems exceedingly unlikely:
-            // @MyAnnotation /* Comment () that contains parentheses */ ()
-
-            if (remaining.contains("(") && remaining.contains(")")) {
+            var paren = positionOfNext("(", null);
+            if (paren >= 0 && paren < endPos(node)) {
                 var parenPrefix = sourceBefore("(");
                 args = new Tr.Annotation.Arguments(randomId(),
                         singletonList(new Tr.Empty(randomId(), format(sourceBefore(")")))),
@@ -401,7 +432,7 @@ public class ParserVisitor extends TreePathScanner<com.netflix.rewrite.tree.Tree
             packageDecl = new Tr.Package(randomId(), convert(cu.getPackageName()), format(sourceBefore(";")));
         }
 
-        return new Tr.CompilationUnit(randomId(),
+        var compilationUnit = new Tr.CompilationUnit(randomId(),
                 path.toString(),
                 packageDecl,
                 convertAll(node.getImports(), semiDelim, semiDelim),
@@ -409,8 +440,11 @@ public class ParserVisitor extends TreePathScanner<com.netflix.rewrite.tree.Tree
                                 .filter(JCClassDecl.class::isInstance)
                                 .collect(toList()),
                         this::whitespace, noDelim),
-                format(prefix, source.substring(cursor))
+                format(prefix, source.substring(cursor)),
+                originalSource
         );
+        originalSource.record(compilationUnit, 0, source.length());
+        return compilationUnit;
     }
 
     @Override
@@ -608,7 +642,7 @@ public class ParserVisitor extends TreePathScanner<com.netflix.rewrite.tree.Tree
     @Override
     public com.netflix.rewrite.tree.Tree visitImport(ImportTree node, Formatting fmt) {
         skip("import");
-        skipPattern("\\s+static");
+        skipPattern(staticPattern);
         return new Tr.Import(randomId(), convert(node.getQualifiedIdentifier()), node.isStatic(), fmt);
     }
 
@@ -865,7 +899,7 @@ public class ParserVisitor extends TreePathScanner<com.netflix.rewrite.tree.Tree
                     format(dimensionPrefix, (i == node.getDimensions().size() - 1 && node.getInitializers() != null) ? sourceBefore("}") : "")));
         }
 
-        var matcher = Pattern.compile("\\G(\\s*)\\[(\\s*)]").matcher(source);
+        var matcher = dimensionPattern.matcher(source);
         while (matcher.find(cursor)) {
             cursor(matcher.end());
             var ws = new Tr.Empty(randomId(), format(matcher.group(2)));
@@ -1138,7 +1172,7 @@ public class ParserVisitor extends TreePathScanner<com.netflix.rewrite.tree.Tree
         }
 
         Supplier<List<VariableDecls.Dimension>> dimensions = () -> {
-            var matcher = Pattern.compile("\\G(\\s*)\\[(\\s*)]").matcher(source);
+            var matcher = dimensionPattern.matcher(source);
             List<Tr.VariableDecls.Dimension> dims = new ArrayList<>();
             while (matcher.find(cursor)) {
                 cursor(matcher.end());
@@ -1150,11 +1184,15 @@ public class ParserVisitor extends TreePathScanner<com.netflix.rewrite.tree.Tree
 
         var beforeDimensions = dimensions.get();
 
-        var vartypeString = typeExpr == null ? "" : source.substring(vartype.getStartPosition(), endPos(vartype));
-        var varargMatcher = Pattern.compile("(\\s*)\\.{3}").matcher(vartypeString);
+        var varargMatcher = varargsPattern.matcher(source);
+        if (typeExpr == null) {
+            varargMatcher.region(0, 0);
+        } else {
+            varargMatcher.region(vartype.getStartPosition(), endPos(vartype));
+        }
         Tr.VariableDecls.Varargs varargs = null;
         if (varargMatcher.find()) {
-            skipPattern("(\\s*)\\.{3}");
+            skipPattern(varargsSkipPattern);
             varargs = new Tr.VariableDecls.Varargs(randomId(), format(varargMatcher.group(1)));
         }
 
@@ -1232,11 +1270,16 @@ public class ParserVisitor extends TreePathScanner<com.netflix.rewrite.tree.Tree
 
     private <T extends com.netflix.rewrite.tree.Tree> T convert(com.sun.source.tree.Tree t2, Function<com.sun.source.tree.Tree, String> suffix) {
         try {
+            int start = cursor;
             var prefix = source.substring(cursor, max(((JCTree) t2).getStartPosition(), cursor));
             cursor += prefix.length();
             @SuppressWarnings("unchecked") T t = (T) scan(t2, format(prefix));
             if (t != null) {
-                t = t.withSuffix(suffix.apply(t2));
+                // every suffix is taken from the source immediately following the element
+                int suffixStart = cursor;
+                var suffixSource = suffix.apply(t2);
+                t = t.withSuffix(suffixSource);
+                originalSource.record(t, start, suffixStart + suffixSource.length());
             }
             cursor(max(endPos(t2), cursor)); // if there is a non-empty suffix, the cursor may have already moved past it
             return t;
@@ -1366,7 +1409,7 @@ public class ParserVisitor extends TreePathScanner<com.netflix.rewrite.tree.Tree
      * --------------
      */
 
-    private final Map<Long, Flag> flagMasks = Map.of(
+    private static final Map<Long, Flag> flagMasks = Map.of(
             1L, Flag.Public,
             1L << 1, Flag.Private,
             1L << 2, Flag.Protected,
@@ -1379,8 +1422,15 @@ public class ParserVisitor extends TreePathScanner<com.netflix.rewrite.tree.Tree
     );
 
     private Set<Flag> filteredFlags(Symbol sym) {
+        return flags(sym.flags());
+    }
+
+    /**
+     * javac's flags share their lowest bits with the access flags of classfiles.
+     */
+    static Set<Flag> flags(long flags) {
         return flagMasks.entrySet().stream()
-                .filter(mask -> (sym.flags() & mask.getKey()) != 0L)
+                .filter(mask -> (flags & mask.getKey()) != 0L)
                 .map(Map.Entry::getValue)
                 .collect(toSet());
     }
@@ -1420,23 +1470,24 @@ public class ParserVisitor extends TreePathScanner<com.netflix.rewrite.tree.Tree
                     List<Symbol> stackWithSym = new ArrayList<>(stack);
                     stackWithSym.add(sym);
 
-                    var fields = (sym.members_field == null ? Stream.empty() : stream(sym.members_field.getSymbols().spliterator(), false))
-                            .filter(elem -> elem instanceof Symbol.VarSymbol)
-                            .map(Symbol.VarSymbol.class::cast)
-                            .map(elem -> new Type.Var(
-                                    elem.name.toString(),
-                                    type(elem.type, stackWithSym),
-                                    filteredFlags(elem)
-                            ))
-                            .collect(toList());
-
                     var classType = (com.sun.tools.javac.code.Type.ClassType) type;
-                    var symType = (com.sun.tools.javac.code.Type.ClassType) sym.type;
-                    return Type.Class.build(sym.className(), fields,
-                            classType.typarams_field == null ? emptyList() : classType.typarams_field.stream().map(tParam -> type(tParam, stackWithSym, true)).filter(Objects::nonNull).collect(toList()),
-                            symType.interfaces_field == null ? emptyList() : symType.interfaces_field.stream().map(iParam -> type(iParam, stackWithSym, false)).filter(Objects::nonNull).collect(toList()),
-                            TypeUtils.asClass(type(classType.supertype_field, stackWithSym)),
-                            relaxedClassTypeMatching);
+                    List<Type> typeParameters = classType.typarams_field == null ? emptyList() : classType.typarams_field.stream().map(tParam -> type(tParam, stackWithSym, true)).filter(Objects::nonNull).collect(toList());
+
+                    if (lazyClassTypes != null) {
+                        // the stack is part of the key, since it determines where cycles are cut off once resolved
+                        return lazyClassTypes.classes.computeIfAbsent(new LazyClassKey(sym, stack, typeParameters),
+                                key -> Type.Class.lazy(sym.className(), typeParameters, () -> {
+                                    synchronized (lazyClassTypes.symbolLock) {
+                                        try (var scope = typeCache.bind()) {
+                                            return resolution(classType, stackWithSym);
+                                        }
+                                    }
+                                }));
+                    }
+
+                    var resolution = resolution(classType, stackWithSym);
+                    return Type.Class.build(sym.className(), resolution.getMembers(), typeParameters,
+                            resolution.getInterfaces(), resolution.getSupertype(), relaxedClassTypeMatching);
                 }
             }
         } else if (type instanceof com.sun.tools.javac.code.Type.TypeVar) {
@@ -1452,6 +1503,34 @@ public class ParserVisitor extends TreePathScanner<com.netflix.rewrite.tree.Tree
         }
     }
 
+    private Type.Class.Resolution resolution(com.sun.tools.javac.code.Type.ClassType classType, List<Symbol> stackWithSym) {
+        var sym = (Symbol.ClassSymbol) classType.tsym;
+
+        List<Type.Var> fields = null;
+        if (sym.members_field == null && classpathIndex != null && sym.classfile != null &&
+                sym.classfile.getKind() == JavaFileObject.Kind.CLASS) {
+            // javac never completed this class, but its fields are still known from the index
+            fields = classpathIndex.fields(sym.flatName().toString());
+        }
+
+        if (fields == null) {
+            fields = (sym.members_field == null ? Stream.empty() : stream(sym.members_field.getSymbols().spliterator(), false))
+                    .filter(elem -> elem instanceof Symbol.VarSymbol)
+                    .map(Symbol.VarSymbol.class::cast)
+                    .map(elem -> new Type.Var(
+                            elem.name.toString(),
+                            type(elem.type, stackWithSym),
+                            filteredFlags(elem)
+                    ))
+                    .collect(toList());
+        }
+
+        var symType = (com.sun.tools.javac.code.Type.ClassType) sym.type;
+        return new Type.Class.Resolution(fields,
+                symType.interfaces_field == null ? emptyList() : symType.interfaces_field.stream().map(iParam -> type(iParam, stackWithSym, false)).filter(Objects::nonNull).collect(toList()),
+                TypeUtils.asClass(type(classType.supertype_field, stackWithSym)));
+    }
+
     @Nullable
     private Type type(Tree t) {
         return type(((JCTree) t).type);
@@ -1519,43 +1598,22 @@ public class ParserVisitor extends TreePathScanner<com.netflix.rewrite.tree.Tree
     }
 
     private int positionOfNext(String untilDelim, @Nullable Character stop) {
-        var inMultiLineComment = false;
-        var inSingleLineComment = false;
-
-        var delimIndex = cursor;
-        for (; delimIndex < source.length() - untilDelim.length() + 1; delimIndex++) {
-            if (inSingleLineComment && source.charAt(delimIndex) == '\n') {
-                inSingleLineComment = false;
-            } else {
-                if (source.length() - untilDelim.length() > delimIndex + 1) {
-                    switch (source.substring(delimIndex, delimIndex + 2)) {
-                        case "//":
-                            inSingleLineComment = true;
-                            delimIndex++;
-                            break;
-                        case "/*":
-                            inMultiLineComment = true;
-                            delimIndex++;
-                            break;
-                        case "*/":
-                            inMultiLineComment = false;
-                            delimIndex++;
-                            break;
-                    }
-                }
+        int r = firstRangeFromCursor();
+        for (int delimIndex = cursor; delimIndex < source.length() - untilDelim.length() + 1; delimIndex++) {
+            if (r < commentsAndLiterals.size() && delimIndex >= commentsAndLiterals.start(r)) {
+                delimIndex = commentsAndLiterals.end(r++) - 1;
+                continue;
+            }
 
-                if (!inMultiLineComment && !inSingleLineComment) {
-                    if (stop != null && source.charAt(delimIndex) == stop)
-                        return -1; // reached stop word before finding the delimiter
+            if (stop != null && source.charAt(delimIndex) == stop)
+                return -1; // reached stop word before finding the delimiter
 
-                    if (source.substring(delimIndex, delimIndex + untilDelim.length()).equals(untilDelim)) {
-                        break; // found it!
-                    }
-                }
+            if (source.startsWith(untilDelim, delimIndex)) {
+                return delimIndex; // found it!
             }
         }
 
-        return delimIndex > source.length() - untilDelim.length() ? -1 : delimIndex;
+        return -1;
     }
 
     private final Function<Tree, String> semiDelim = ignored -> sourceBefore(";");
@@ -1567,36 +1625,19 @@ public class ParserVisitor extends TreePathScanner<com.netflix.rewrite.tree.Tree
     }
 
     private String whitespace(@Nullable Tree t) {
-        var inMultiLineComment = false;
-        var inSingleLineComment = false;
-
+        int r = firstRangeFromCursor();
         int delimIndex = cursor;
         for (; delimIndex < source.length(); delimIndex++) {
-            if (inSingleLineComment && source.charAt(delimIndex) == '\n') {
-                inSingleLineComment = false;
-            } else {
-                if (source.length() > delimIndex + 1) {
-                    switch (source.substring(delimIndex, delimIndex + 2)) {
-                        case "//":
-                            inSingleLineComment = true;
-                            delimIndex += 2;
-                            continue;
-                        case "/*":
-                            inMultiLineComment = true;
-                            delimIndex += 2;
-                            continue;
-                        case "*/":
-                            inMultiLineComment = false;
-                            delimIndex += 2;
-                            continue;
-                    }
+            if (r < commentsAndLiterals.size() && delimIndex == commentsAndLiterals.start(r)) {
+                if (!commentsAndLiterals.isComment(r)) {
+                    break; // a literal is the start of the next element
                 }
+                delimIndex = commentsAndLiterals.end(r++) - 1;
+                continue;
+            }
 
-                if (!inMultiLineComment && !inSingleLineComment) {
-                    if (!Character.isWhitespace(source.substring(delimIndex, delimIndex + 1).charAt(0))) {
-                        break; // found it!
-                    }
-                }
+            if (!Character.isWhitespace(source.charAt(delimIndex))) {
+                break; // found it!
             }
         }
 
@@ -1605,17 +1646,28 @@ public class ParserVisitor extends TreePathScanner<com.netflix.rewrite.tree.Tree
         return prefix;
     }
 
+    /**
+     * @return The first comment or literal that starts at or after the cursor.
+     */
+    private int firstRangeFromCursor() {
+        int r = commentsAndLiterals.firstEndingAfter(cursor);
+        return r < commentsAndLiterals.size() && commentsAndLiterals.start(r) < cursor ? r + 1 : r;
+    }
+
     @Nullable
     private String skip(@Nullable String token) {
         if (token == null)
             return null;
-        if (source.substring(cursor, cursor + token.length()).equals(token))
+        if (source.startsWith(token, cursor))
             cursor += token.length();
         return token;
     }
 
-    private void skipPattern(String pattern) {
-        var matcher = Pattern.compile("\\G" + pattern).matcher(source);
+    /**
+     * @param pattern Anchored with {@code \G}, so that it only matches at the cursor.
+     */
+    private void skipPattern(Pattern pattern) {
+        var matcher = pattern.matcher(source);
         if (matcher.find(cursor)) {
             cursor(matcher.end());
         }
@@ -1733,4 +1785,25 @@ public class ParserVisitor extends TreePathScanner<com.netflix.rewrite.tree.Tree
                 })
                 .collect(toList());
     }
+
+    /**
+     * The lazily built class types of one parser, shared by every compilation unit it builds so that there is one
+     * instance per distinct type. Since javac symbols aren't thread-safe, lazily built class types resolve while
+     * holding the parser's symbol lock, which the parser also holds while it enters symbols and builds ASTs.
+     */
+    static class LazyClassTypes {
+        private final Object symbolLock;
+        private final Map<LazyClassKey, Type.Class> classes = new HashMap<>();
+
+        LazyClassTypes(Object symbolLock) {
+            this.symbolLock = symbolLock;
+        }
+    }
+
+    @Value
+    private static class LazyClassKey {
+        Symbol.ClassSymbol symbol;
+        List<Symbol> stack;
+        List<Type> typeParameters;
+    }
 }
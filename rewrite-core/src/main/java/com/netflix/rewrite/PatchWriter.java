@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite;
+
+import com.netflix.rewrite.internal.lang.Nullable;
+import org.eclipse.jgit.diff.DiffFormatter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Writes the changes of many refactored compilation units as a single git patch that can be applied with
+ * {@code git apply}. Each compilation unit is printed, diffed and written before the next is looked at, so no more
+ * than one file is held in memory at a time, no matter how many results are streamed through.
+ */
+public class PatchWriter {
+    private final OutputStream out;
+    private final DiffFormatter formatter;
+
+    @Nullable
+    private final Path relativeTo;
+
+    public PatchWriter(OutputStream out) {
+        this(out, null);
+    }
+
+    public PatchWriter(OutputStream out, @Nullable Path relativeTo) {
+        this.out = new BufferedOutputStream(out);
+        this.formatter = new DiffFormatter(this.out);
+        this.relativeTo = relativeTo;
+    }
+
+    /**
+     * Write the diff of every result that changed its compilation unit, in order, and flush them to the underlying
+     * output stream.
+     */
+    public void write(Stream<RefactorResult> results) {
+        write((Iterable<RefactorResult>) results::iterator);
+    }
+
+    /**
+     * Write the diff of every result that changed its compilation unit, in order, and flush them to the underlying
+     * output stream.
+     */
+    public void write(Iterable<RefactorResult> results) {
+        try {
+            for (RefactorResult result : results) {
+                var diffEntry = result.diffEntry(relativeTo);
+                if (diffEntry != null && diffEntry.isModified()) {
+                    diffEntry.writeTo(out, formatter);
+                }
+            }
+            formatter.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -15,9 +15,12 @@
  */
 package com.netflix.rewrite;
 
+import com.koloboke.collect.set.LongSet;
+import com.koloboke.collect.set.hash.HashLongSets;
 import com.netflix.rewrite.internal.lang.NonNullApi;
 import com.netflix.rewrite.internal.lang.Nullable;
 import com.netflix.rewrite.tree.*;
+import com.netflix.rewrite.visitor.refactor.AstTransform;
 import com.netflix.rewrite.visitor.refactor.RefactorVisitor;
 import com.netflix.rewrite.visitor.refactor.TransformVisitor;
 import com.netflix.rewrite.visitor.refactor.op.*;
@@ -35,10 +38,30 @@ public class Refactor {
 
     private final List<RefactorVisitor> ops = new ArrayList<>();
 
+    private boolean fused = false;
+
+    /**
+     * Time spent by each rule's top-level visitors, including the visitors they run {@link RefactorVisitor#andThen()}
+     * and the application of their transformations, over every call to {@link #fix()}.
+     */
+    private final Map<String, Long> nanosByRule = new HashMap<>();
+
     public Refactor(Tr.CompilationUnit original) {
         this.original = original;
     }
 
+    /**
+     * When fused, the transformations of visitors that don't overlap with one another are applied together in a
+     * single transformation pass per cycle, rather than one pass per visitor. Each fused visitor sees the compilation
+     * unit as it was before any of the others in the same pass changed it, so a visitor that depends on the changes
+     * of another may only converge in a later cycle. Visitors that have {@link RefactorVisitor#andThen()} visitors,
+     * or whose transformations overlap with those of an earlier visitor, are still applied one at a time.
+     */
+    public Refactor fused(boolean fused) {
+        this.fused = fused;
+        return this;
+    }
+
     // -------------
     // Custom refactoring visitors
     // -------------
@@ -213,23 +236,33 @@ public class Refactor {
     public RefactorResult fix(int maxCycles) {
         Tr.CompilationUnit acc = original;
         Set<String> rulesThatMadeChanges = new HashSet<>();
+        Versions versions = new Versions(ops.size());
 
         for (int i = 0; i < maxCycles; i++) {
             Set<String> rulesThatMadeChangesThisCycle = new HashSet<>();
-            for (RefactorVisitor visitor : ops) {
-                // only for use in debugging visitors
-                visitor.setCycle(i);
-
-                if(visitor.isSingleRun() && i > 0) {
-                    continue;
-                }
-
-                var before = acc;
-                acc = transformRecursive(acc, visitor);
-                if(before != acc) {
-                    // we only report on the top-level visitors, not any andThen() visitors that
-                    // are applied as part of the top-level visitor's pipeline
-                    rulesThatMadeChangesThisCycle.add(visitor.getRuleName());
+            if (fused) {
+                acc = fixFused(acc, i, versions, rulesThatMadeChangesThisCycle);
+            } else {
+                for (int j = 0; j < ops.size(); j++) {
+                    RefactorVisitor visitor = ops.get(j);
+
+                    // only for use in debugging visitors
+                    visitor.setCycle(i);
+
+                    if ((visitor.isSingleRun() && i > 0) || versions.isUpToDate(j)) {
+                        continue;
+                    }
+
+                    var before = acc;
+                    long start = System.nanoTime();
+                    acc = transformRecursive(acc, visitor);
+                    recordTime(visitor, start);
+                    versions.ran(j, visitor, before != acc);
+                    if (before != acc) {
+                        // we only report on the top-level visitors, not any andThen() visitors that
+                        // are applied as part of the top-level visitor's pipeline
+                        rulesThatMadeChangesThisCycle.add(visitor.getRuleName());
+                    }
                 }
             }
             if (rulesThatMadeChangesThisCycle.isEmpty()) {
@@ -241,12 +274,215 @@ public class Refactor {
         return new RefactorResult(original, acc, rulesThatMadeChanges);
     }
 
+    private Tr.CompilationUnit fixFused(Tr.CompilationUnit acc, int cycle, Versions versions,
+                                       Set<String> rulesThatMadeChanges) {
+        FusedTransforms fusedTransforms = new FusedTransforms(rulesThatMadeChanges);
+
+        for (int j = 0; j < ops.size(); j++) {
+            RefactorVisitor visitor = ops.get(j);
+
+            // only for use in debugging visitors
+            visitor.setCycle(cycle);
+
+            if ((visitor.isSingleRun() && cycle > 0) || versions.isUpToDate(j)) {
+                continue;
+            }
+
+            long start = System.nanoTime();
+            List<AstTransform> transforms = visitor.visit(acc);
+            recordTime(visitor, start);
+
+            boolean hasAndThen = visitor.andThen().iterator().hasNext();
+            if (transforms.isEmpty() && !hasAndThen) {
+                versions.ran(j, visitor, false);
+                continue;
+            }
+
+            if (!hasAndThen && fusedTransforms.add(visitor, transforms)) {
+                // up to date with the compilation unit as it was before the fused transformations are applied
+                versions.ran(j, visitor, false);
+                continue;
+            }
+
+            if (!fusedTransforms.isEmpty()) {
+                acc = applyFused(acc, fusedTransforms, versions);
+                start = System.nanoTime();
+                transforms = visitor.visit(acc);
+                recordTime(visitor, start);
+            }
+
+            var before = acc;
+            start = System.nanoTime();
+            acc = transformRecursive(acc, visitor, transforms);
+            recordTime(visitor, start);
+            versions.ran(j, visitor, before != acc);
+            if (before != acc) {
+                rulesThatMadeChanges.add(visitor.getRuleName());
+            }
+        }
+
+        return applyFused(acc, fusedTransforms, versions);
+    }
+
+    private void recordTime(RefactorVisitor visitor, long startNanos) {
+        nanosByRule.merge(visitor.getRuleName(), System.nanoTime() - startNanos, Long::sum);
+    }
+
+    /**
+     * @return Nanoseconds spent by each rule's visitors, over every call to {@link #fix()}. Time spent applying the
+     * transformations of fused visitors together is not attributed to any rule.
+     */
+    public Map<String, Long> getNanosByRule() {
+        return Collections.unmodifiableMap(nanosByRule);
+    }
+
+    private Tr.CompilationUnit applyFused(Tr.CompilationUnit acc, FusedTransforms fusedTransforms, Versions versions) {
+        Tr.CompilationUnit transformed = fusedTransforms.apply(acc);
+        if (transformed != acc) {
+            versions.changed();
+        }
+        return transformed;
+    }
+
     private Tr.CompilationUnit transformRecursive(Tr.CompilationUnit acc, RefactorVisitor visitor) {
+        return transformRecursive(acc, visitor, visitor.visit(acc));
+    }
+
+    private Tr.CompilationUnit transformRecursive(Tr.CompilationUnit acc, RefactorVisitor visitor, List<AstTransform> transforms) {
         // by transforming the AST for each op, we allow for the possibility of overlapping changes
-        acc = (Tr.CompilationUnit) new TransformVisitor(visitor.visit(acc)).visit(acc);
+        acc = (Tr.CompilationUnit) new TransformVisitor(transforms).visit(acc);
         for (RefactorVisitor vis : visitor.andThen()) {
             acc = transformRecursive(acc, vis);
         }
         return acc;
     }
+
+    /**
+     * Counts changes to the compilation unit being fixed, so that a visitor is only run again once the compilation
+     * unit has changed since it last ran. Visitors are assumed to be deterministic, so a visitor run against a
+     * compilation unit it has already seen would produce the same transformations again. Which parts of the
+     * compilation unit a visitor looks at can't be known up front, so any change makes every other visitor out of date.
+     */
+    private static class Versions {
+        private int version = 0;
+
+        /**
+         * For each top-level visitor, the version of the compilation unit it last ran against, or -1 if it hasn't run.
+         */
+        private final int[] upToDate;
+
+        private Versions(int visitors) {
+            upToDate = new int[visitors];
+            Arrays.fill(upToDate, -1);
+        }
+
+        boolean isUpToDate(int visitor) {
+            return upToDate[visitor] == version;
+        }
+
+        void ran(int visitor, RefactorVisitor refactorVisitor, boolean changed) {
+            if (changed) {
+                version++;
+
+                // a visitor that isn't idempotent has to see its own changes to confirm that it has nothing more to do
+                upToDate[visitor] = refactorVisitor.isIdempotent() ? version : version - 1;
+            } else {
+                upToDate[visitor] = version;
+            }
+        }
+
+        void changed() {
+            version++;
+        }
+    }
+
+    /**
+     * Transformations from several visitors of the same compilation unit, none of which targets a tree element that is
+     * the same as, an ancestor of, or a descendant of a tree element targeted by another visitor. These can be applied
+     * together in any order with the same result as applying them one visitor at a time.
+     */
+    private static class FusedTransforms {
+        private final Set<String> rulesThatMadeChanges;
+
+        private final List<AstTransform> transforms = new ArrayList<>();
+
+        /**
+         * Ids of every tree element on a path from the root to a targeted subtree.
+         */
+        private final LongSet pathIds = HashLongSets.newMutableSet();
+
+        /**
+         * Ids of the roots of targeted subtrees.
+         */
+        private final LongSet subtreeIds = HashLongSets.newMutableSet();
+
+        private FusedTransforms(Set<String> rulesThatMadeChanges) {
+            this.rulesThatMadeChanges = rulesThatMadeChanges;
+        }
+
+        boolean isEmpty() {
+            return transforms.isEmpty();
+        }
+
+        /**
+         * @return false, adding nothing, if any transformation could overlap with one that was added before.
+         */
+        boolean add(RefactorVisitor visitor, List<AstTransform> visitorTransforms) {
+            LongSet visitorPathIds = HashLongSets.newMutableSet();
+            LongSet visitorSubtreeIds = HashLongSets.newMutableSet();
+
+            for (AstTransform transform : visitorTransforms) {
+                if (transform.getCursor() == null) {
+                    // without a recorded path there is no telling where the target is
+                    return false;
+                }
+
+                boolean targetOnPath = false;
+                for (Cursor c = transform.getCursor(); c != null; c = c.getParent()) {
+                    long id = c.getTree().getId();
+                    if (subtreeIds.contains(id)) {
+                        return false;
+                    }
+                    visitorPathIds.add(id);
+                    targetOnPath |= id == transform.getId();
+                }
+
+                // when the target is nested somewhere below the visited tree, the visited tree's whole subtree is claimed
+                long subtreeId = targetOnPath ? transform.getId() : transform.getCursor().getTree().getId();
+                if (pathIds.contains(subtreeId)) {
+                    return false;
+                }
+                visitorSubtreeIds.add(subtreeId);
+            }
+
+            pathIds.addAll(visitorPathIds);
+            subtreeIds.addAll(visitorSubtreeIds);
+
+            String ruleName = visitor.getRuleName();
+            for (AstTransform transform : visitorTransforms) {
+                transforms.add(new AstTransform(transform.getId(), transform.getName(), transform.getTreeType(),
+                        (t, c) -> {
+                            Tree mutated = transform.getMutation().apply(t, c);
+                            if (mutated != t) {
+                                rulesThatMadeChanges.add(ruleName);
+                            }
+                            return mutated;
+                        }, transform.getCursor()));
+            }
+
+            return true;
+        }
+
+        Tr.CompilationUnit apply(Tr.CompilationUnit acc) {
+            if (transforms.isEmpty()) {
+                return acc;
+            }
+
+            Tr.CompilationUnit transformed = (Tr.CompilationUnit) new TransformVisitor(transforms).visit(acc);
+            transforms.clear();
+            pathIds.clear();
+            subtreeIds.clear();
+            return transformed;
+        }
+    }
 }
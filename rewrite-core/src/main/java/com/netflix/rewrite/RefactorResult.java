@@ -18,14 +18,19 @@ package com.netflix.rewrite;
 import com.netflix.rewrite.internal.lang.Nullable;
 import com.netflix.rewrite.tree.Tr;
 import lombok.Data;
+import org.eclipse.jgit.diff.DiffAlgorithm;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
-import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.util.QuotedString;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.io.UncheckedIOException;
 import java.nio.file.Path;
@@ -49,12 +54,33 @@ public class RefactorResult implements Serializable {
      * @return Git-style patch diff representing the changes to this compilation unit
      */
     public String diff(@Nullable Path relativeTo) {
+        var diffEntry = diffEntry(relativeTo);
+        return diffEntry == null ? "" : diffEntry.getDiff();
+    }
+
+    /**
+     * @return null when no refactoring changed anything, so there is nothing to print or compare.
+     */
+    @Nullable
+    InMemoryDiffEntry diffEntry(@Nullable Path relativeTo) {
+        if (original == fixed) {
+            return null;
+        }
         return new InMemoryDiffEntry(Paths.get(original.getSourcePath()), relativeTo,
-                original.print(), fixed.print()).getDiff();
+                original.print(), fixed.print());
     }
 
+    /**
+     * Hashes and diffs both sources directly, rather than storing them as blobs in a repository to be read back.
+     */
     static class InMemoryDiffEntry extends DiffEntry {
-        InMemoryRepository repo;
+        private static final DiffAlgorithm diffAlgorithm = DiffAlgorithm.getAlgorithm(
+                DiffAlgorithm.SupportedAlgorithm.HISTOGRAM);
+
+        private static final int ABBREVIATED_ID_LENGTH = 7;
+
+        private final RawText oldText;
+        private final RawText newText;
 
         InMemoryDiffEntry(Path filePath, @Nullable Path relativeTo, String oldSource, String newSource) {
             this.changeType = ChangeType.MODIFY;
@@ -63,36 +89,58 @@ public class RefactorResult implements Serializable {
             this.oldPath = relativePath.toString();
             this.newPath = relativePath.toString();
 
-            try {
-                this.repo = new InMemoryRepository.Builder().build();
+            var oldBytes = oldSource.getBytes();
+            var newBytes = newSource.getBytes();
 
-                var inserter = repo.getObjectDatabase().newInserter();
-                oldId = inserter.insert(Constants.OBJ_BLOB, oldSource.getBytes()).abbreviate(40);
-                newId = inserter.insert(Constants.OBJ_BLOB, newSource.getBytes()).abbreviate(40);
-                inserter.flush();
+            var hasher = new ObjectInserter.Formatter();
+            oldId = hasher.idFor(Constants.OBJ_BLOB, oldBytes).abbreviate(40);
+            newId = hasher.idFor(Constants.OBJ_BLOB, newBytes).abbreviate(40);
 
-                oldMode = FileMode.REGULAR_FILE;
-                newMode = FileMode.REGULAR_FILE;
-                repo.close();
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
-            }
+            oldMode = FileMode.REGULAR_FILE;
+            newMode = FileMode.REGULAR_FILE;
+
+            this.oldText = new RawText(oldBytes);
+            this.newText = new RawText(newBytes);
         }
 
         String getDiff() {
-            if (oldId.equals(newId)) {
+            if (!isModified()) {
                 return "";
             }
 
             var patch = new ByteArrayOutputStream();
-            var formatter = new DiffFormatter(patch);
-            formatter.setRepository(repo);
             try {
-                formatter.format(this);
+                var formatter = new DiffFormatter(patch);
+                writeTo(patch, formatter);
+                formatter.flush();
             } catch (IOException e) {
                 throw new UncheckedIOException(e);
             }
             return new String(patch.toByteArray());
         }
+
+        /**
+         * Writes the same header and hunks that {@link org.eclipse.jgit.diff.DiffFormatter} would for a modified
+         * file. Common leading and trailing lines are trimmed before the diff algorithm runs, so its cost depends on
+         * the extent of the changes rather than the size of the file.
+         *
+         * @param formatter Formats hunks to the same output stream.
+         */
+        void writeTo(OutputStream out, DiffFormatter formatter) throws IOException {
+            var oldName = QuotedString.GIT_PATH.quote("a/" + oldPath);
+            var newName = QuotedString.GIT_PATH.quote("b/" + newPath);
+
+            out.write(Constants.encode("diff --git " + oldName + " " + newName + "\n" +
+                    "index " + oldId.toObjectId().abbreviate(ABBREVIATED_ID_LENGTH).name() + ".." +
+                    newId.toObjectId().abbreviate(ABBREVIATED_ID_LENGTH).name() + " "));
+            newMode.copyTo(out);
+            out.write(Constants.encode("\n--- " + oldName + "\n+++ " + newName + "\n"));
+
+            formatter.format(diffAlgorithm.diff(RawTextComparator.DEFAULT, oldText, newText), oldText, newText);
+        }
+
+        boolean isModified() {
+            return !oldId.equals(newId);
+        }
     }
 }
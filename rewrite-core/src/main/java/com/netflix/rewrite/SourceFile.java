@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite;
+
+import com.netflix.rewrite.internal.lang.NonNullApi;
+import com.netflix.rewrite.internal.lang.Nullable;
+
+import javax.tools.SimpleJavaFileObject;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A source file that is read and decoded once, and then shared by javac and the {@link ParserVisitor} that builds
+ * its AST, or a source snippet that only exists in memory.
+ */
+@NonNullApi
+class SourceFile extends SimpleJavaFileObject {
+    /**
+     * Files at least this large are mapped into memory rather than read onto the heap before they are decoded.
+     */
+    private static final long MAP_THRESHOLD = 64 * 1024;
+
+    private final Path path;
+
+    /**
+     * Null for source snippets, whose content can't be read again.
+     */
+    @Nullable
+    private final Charset charset;
+
+    @Nullable
+    private String content;
+
+    SourceFile(Path path, Charset charset) {
+        super(path.toUri(), Kind.SOURCE);
+        this.path = path;
+        this.charset = charset;
+    }
+
+    SourceFile(Path path, String content) {
+        super(path.toUri(), Kind.SOURCE);
+        this.path = path;
+        this.charset = null;
+        this.content = content;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    @Override
+    public synchronized String getCharContent(boolean ignoreEncodingErrors) throws IOException {
+        if (content == null) {
+            content = read();
+        }
+        return content;
+    }
+
+    @Override
+    public InputStream openInputStream() throws IOException {
+        return charset == null ?
+                new ByteArrayInputStream(getCharContent(true).getBytes(StandardCharsets.UTF_8)) :
+                Files.newInputStream(path);
+    }
+
+    /**
+     * Once its AST is built, the content of a source file is only needed again for diagnostics, which can read
+     * it again. javac's symbols retain their source file, so releasing its content keeps it from being retained
+     * for as long as the parser is.
+     */
+    synchronized void release() {
+        if (charset != null) {
+            content = null;
+        }
+    }
+
+    private String read() throws IOException {
+        if (charset == null) {
+            throw new IllegalStateException("Source snippets can't be read again");
+        }
+
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            ByteBuffer bytes;
+            if (size >= MAP_THRESHOLD) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                    // read until the whole file is buffered
+                }
+                bytes.flip();
+            }
+
+            // like Files.readString, malformed input fails rather than being replaced, so printing an AST never
+            // writes back different text than was read
+            return charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(bytes)
+                    .toString();
+        }
+    }
+}
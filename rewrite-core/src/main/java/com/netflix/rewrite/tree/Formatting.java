@@ -17,14 +17,12 @@ package com.netflix.rewrite.tree;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
-import com.koloboke.collect.map.hash.HashObjObjMaps;
 import com.netflix.rewrite.internal.lang.Nullable;
 import lombok.Getter;
 
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.PrimitiveIterator;
 
 /**
@@ -33,10 +31,6 @@ import java.util.PrimitiveIterator;
 @JsonIdentityInfo(generator = ObjectIdGenerators.IntSequenceGenerator.class, property = "@ref")
 @Getter
 public class Formatting implements Serializable {
-    // suffixes are uncommon, so we'll treat them as a secondary index
-    private static final Map<String, Map<String, Formatting>> flyweights = HashObjObjMaps.newMutableMap();
-    ;
-
     public static Formatting EMPTY = new Formatting("", "") {
         @Override
         public String toString() {
@@ -57,15 +51,11 @@ public class Formatting implements Serializable {
     }
 
     public static Formatting format(String prefix, String suffix) {
-        synchronized (flyweights) {
-            if (prefix.isEmpty() && suffix.isEmpty()) {
-                return EMPTY;
-            }
-
-            return flyweights
-                    .computeIfAbsent(prefix, p -> HashObjObjMaps.newMutableMap())
-                    .computeIfAbsent(suffix, s -> new Formatting(prefix, s));
+        if (prefix.isEmpty() && suffix.isEmpty()) {
+            return EMPTY;
         }
+
+        return TypeCache.current().internFormatting(prefix, suffix, Formatting::new);
     }
 
     public Formatting withPrefix(String prefix) {
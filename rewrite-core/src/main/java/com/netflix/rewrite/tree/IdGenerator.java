@@ -0,0 +1,27 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite.tree;
+
+/**
+ * Supplies the ids that identify AST elements across transformations. Ids only need to be unique among the trees
+ * that are refactored together.
+ *
+ * @see Tr#setIdGenerator(IdGenerator)
+ */
+@FunctionalInterface
+public interface IdGenerator {
+    long nextId();
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite.tree;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out increasing ids from blocks reserved on a shared counter, so that each thread only contends on the shared
+ * counter once per block. The counter starts at a random offset so that trees parsed by different processes and later
+ * deserialized together are unlikely to share ids.
+ */
+public class MonotonicIdGenerator implements IdGenerator {
+    private static final int BLOCK_SIZE = 1024;
+
+    private final AtomicLong nextBlock;
+
+    /**
+     * The next id and the exclusive end of the block it is drawn from.
+     */
+    private final ThreadLocal<long[]> block = ThreadLocal.withInitial(() -> new long[2]);
+
+    public MonotonicIdGenerator() {
+        this(ThreadLocalRandom.current().nextLong() & 0x7fffffff00000000L);
+    }
+
+    public MonotonicIdGenerator(long start) {
+        this.nextBlock = new AtomicLong(start);
+    }
+
+    @Override
+    public long nextId() {
+        long[] b = block.get();
+        if (b[0] == b[1]) {
+            b[0] = nextBlock.getAndAdd(BLOCK_SIZE);
+            b[1] = b[0] + BLOCK_SIZE;
+        }
+        return b[0]++;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite.tree;
+
+import com.koloboke.collect.Equivalence;
+import com.koloboke.collect.map.ObjLongMap;
+import com.koloboke.collect.map.hash.HashObjLongMaps;
+
+import java.io.IOException;
+
+/**
+ * The source a compilation unit was parsed from, and where in it each element of the parsed tree was found. Trees
+ * are immutable, so an element that is still the same instance after refactoring prints exactly as it was parsed,
+ * and its original text can be copied rather than printed again.
+ */
+public class OriginalSource {
+    private final String source;
+
+    /**
+     * Start (inclusive) and end (exclusive) of each element, from the start of its prefix to the end of its suffix,
+     * packed into the high and low halves of a long. Elements are matched by identity, since {@link Tr} equality is by id
+     * and a changed element keeps its id.
+     */
+    private final ObjLongMap<Tree> spans = HashObjLongMaps.getDefaultFactory()
+            .withKeyEquivalence(Equivalence.identity())
+            .newMutableMap();
+
+    public OriginalSource(String source) {
+        this.source = source;
+    }
+
+    public void record(Tree tree, int start, int end) {
+        spans.put(tree, ((long) start << 32) | end);
+    }
+
+    /**
+     * @return true if the tree is unchanged since it was parsed, and its original text has been appended.
+     */
+    public boolean appendTo(Appendable out, Tree tree) throws IOException {
+        long span = spans.getOrDefault(tree, -1L);
+        if (span == -1L) {
+            return false;
+        }
+        out.append(source, (int) (span >>> 32), (int) span);
+        return true;
+    }
+}
@@ -16,7 +16,6 @@
 package com.netflix.rewrite.tree;
 
 import com.fasterxml.jackson.annotation.*;
-import com.koloboke.collect.map.hash.HashObjObjMaps;
 import com.netflix.rewrite.Refactor;
 import com.netflix.rewrite.internal.lang.NonNull;
 import com.netflix.rewrite.internal.lang.Nullable;
@@ -41,8 +40,20 @@ import static java.util.stream.Collectors.toList;
 
 @JsonIdentityInfo(generator = ObjectIdGenerators.IntSequenceGenerator.class, property = "@ref")
 public abstract class Tr implements Serializable, Tree {
-    public static UUID randomId() {
-        return UUID.randomUUID();
+    private static volatile IdGenerator idGenerator = new MonotonicIdGenerator();
+
+    /**
+     * Replaces the generator of ids for AST elements created from now on, on every thread.
+     */
+    public static void setIdGenerator(IdGenerator idGenerator) {
+        Tr.idGenerator = idGenerator;
+    }
+
+    /**
+     * @return A new id for an AST element. Ids are no longer random UUIDs, but the name is kept for compatibility.
+     */
+    public static long randomId() {
+        return idGenerator.nextId();
     }
 
     @FieldDefaults(makeFinal = true, level = AccessLevel.PRIVATE)
@@ -50,7 +61,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Annotation extends Tr implements Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         NameTree annotationType;
@@ -84,7 +95,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Arguments extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             List<Expression> args;
@@ -99,7 +110,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class ArrayAccess extends Tr implements Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Expression indexed;
@@ -124,7 +135,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Dimension extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Expression index;
@@ -139,7 +150,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class ArrayType extends Tr implements TypeTree, Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         TypeTree elementType;
@@ -171,7 +182,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Dimension extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Empty inner;
@@ -186,7 +197,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Assert extends Tr implements Statement {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Expression condition;
@@ -211,7 +222,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Assign extends Tr implements Statement, Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Expression variable;
@@ -249,7 +260,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class AssignOp extends Tr implements Statement, Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Expression variable;
@@ -291,7 +302,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Addition extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -302,7 +313,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Subtraction extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -313,7 +324,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Multiplication extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -324,7 +335,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Division extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -335,7 +346,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Modulo extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -346,7 +357,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class BitAnd extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -357,7 +368,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class BitOr extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -368,7 +379,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class BitXor extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -379,7 +390,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class LeftShift extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -390,7 +401,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class RightShift extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -401,7 +412,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class UnsignedRightShift extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -414,7 +425,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Binary extends Tr implements Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Expression left;
@@ -453,7 +464,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Addition extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -464,7 +475,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Subtraction extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -475,7 +486,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Multiplication extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -486,7 +497,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Division extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -497,7 +508,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Modulo extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -508,7 +519,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class LessThan extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -519,7 +530,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class GreaterThan extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -530,7 +541,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class LessThanOrEqual extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -541,7 +552,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class GreaterThanOrEqual extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -552,7 +563,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Equal extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -563,7 +574,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class NotEqual extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -574,7 +585,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class BitAnd extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -585,7 +596,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class BitOr extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -596,7 +607,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class BitXor extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -607,7 +618,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class LeftShift extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -618,7 +629,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class RightShift extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -629,7 +640,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class UnsignedRightShift extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -640,7 +651,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Or extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -651,7 +662,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class And extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -665,7 +676,7 @@ public abstract class Tr implements Serializable, Tree {
     public static class Block<T extends Tree> extends Tr implements Statement {
         @Getter
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @Nullable
         @With
@@ -705,7 +716,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Break extends Tr implements Statement {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         @Nullable
@@ -731,7 +742,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Case extends Tr implements Statement {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         @Nullable
@@ -755,7 +766,7 @@ public abstract class Tr implements Serializable, Tree {
     public static class ClassDecl extends Tr implements Statement {
         @Getter
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         @Getter
@@ -866,7 +877,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Class extends Kind {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -877,7 +888,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Enum extends Kind {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -888,7 +899,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Interface extends Kind {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -899,7 +910,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Annotation extends Kind {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -966,7 +977,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class CompilationUnit extends Tr {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         String sourcePath;
 
@@ -983,6 +994,14 @@ public abstract class Tr implements Serializable, Tree {
         @With
         Formatting formatting;
 
+        /**
+         * Carried along to every refactored copy of this compilation unit, so that elements left unchanged print
+         * their original text. Not serialized.
+         */
+        @JsonIgnore
+        @Nullable
+        transient OriginalSource originalSource;
+
         @Override
         public <R> R accept(AstVisitor<R> v) {
             return v.visitCompilationUnit(this);
@@ -1024,7 +1043,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Continue extends Tr implements Statement {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         @Nullable
@@ -1050,7 +1069,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class DoWhileLoop extends Tr implements Statement {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Statement body;
@@ -1077,7 +1096,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class While extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Parentheses<Expression> condition;
@@ -1092,7 +1111,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Empty extends Tr implements Statement, Expression, TypeTree {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Formatting formatting;
@@ -1125,7 +1144,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class EnumValue extends Tr implements Statement {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Ident name;
@@ -1147,7 +1166,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Arguments extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             List<Expression> args;
@@ -1162,7 +1181,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class EnumValueSet extends Tr implements Statement {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         List<EnumValue> enums;
@@ -1183,7 +1202,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class FieldAccess extends Tr implements TypeTree, Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Expression target;
@@ -1246,7 +1265,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class ForEachLoop extends Tr implements Statement {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Control control;
@@ -1267,7 +1286,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Control extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             VariableDecls variable;
@@ -1285,7 +1304,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class ForLoop extends Tr implements Statement {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Control control;
@@ -1306,7 +1325,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Control extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Statement init;
@@ -1326,17 +1345,15 @@ public abstract class Tr implements Serializable, Tree {
     @EqualsAndHashCode(callSuper = false, onlyExplicitlyIncluded = true)
     @Getter
     public static class Ident extends Tr implements TypeTree, Expression {
-        private static final Map<String, Map<Type, IdentFlyweight>> flyweights = HashObjObjMaps.newMutableMap();
-
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         IdentFlyweight ident;
 
         @With
         Formatting formatting;
 
-        private Ident(UUID id, IdentFlyweight ident, Formatting formatting) {
+        private Ident(long id, IdentFlyweight ident, Formatting formatting) {
             this.id = id;
             this.ident = ident;
             this.formatting = formatting;
@@ -1368,19 +1385,11 @@ public abstract class Tr implements Serializable, Tree {
         }
 
         @JsonCreator
-        public static Ident build(@JsonProperty("id") UUID id,
+        public static Ident build(@JsonProperty("id") long id,
                                   @JsonProperty("simpleName") String simpleName,
                                   @JsonProperty("type") @Nullable Type type,
                                   @JsonProperty("formatting") Formatting formatting) {
-            synchronized (flyweights) {
-                return new Ident(
-                        id,
-                        flyweights
-                                .computeIfAbsent(simpleName, n -> HashObjObjMaps.newMutableMap())
-                                .computeIfAbsent(type, t -> new IdentFlyweight(simpleName, t)),
-                        formatting
-                );
-            }
+            return new Ident(id, TypeCache.current().internIdent(simpleName, type), formatting);
         }
 
         @FieldDefaults(makeFinal = true, level = AccessLevel.PRIVATE)
@@ -1405,7 +1414,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class If extends Tr implements Statement {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Parentheses<Expression> ifCondition;
@@ -1430,7 +1439,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Else extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Statement statement;
@@ -1451,7 +1460,7 @@ public abstract class Tr implements Serializable, Tree {
     public static class Import extends Tr implements Comparable<Import> {
         @Getter
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         @Getter
@@ -1523,7 +1532,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class InstanceOf extends Tr implements Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Expression expr;
@@ -1549,7 +1558,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Label extends Tr implements Statement {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Ident label;
@@ -1571,7 +1580,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Lambda extends Tr implements Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Parameters paramSet;
@@ -1599,7 +1608,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Arrow extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Formatting formatting;
@@ -1610,7 +1619,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Parameters extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             boolean parenthesized;
@@ -1633,7 +1642,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Literal extends Tr implements Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         @Nullable
@@ -1683,7 +1692,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class MemberReference extends Tr implements Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Expression containing;
@@ -1714,7 +1723,7 @@ public abstract class Tr implements Serializable, Tree {
     public static class MethodDecl extends Tr {
         @Getter
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         @Getter
@@ -1825,7 +1834,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Parameters extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             List<Statement> params;
@@ -1839,7 +1848,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Throws extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             List<NameTree> exceptions;
@@ -1853,7 +1862,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Default extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Expression value;
@@ -1877,7 +1886,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class MethodInvocation extends Tr implements Statement, Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         @Nullable
@@ -1942,7 +1951,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Arguments extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             List<Expression> args;
@@ -2074,7 +2083,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Default extends Modifier {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Formatting formatting;
@@ -2085,7 +2094,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Public extends Modifier {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Formatting formatting;
@@ -2096,7 +2105,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Protected extends Modifier {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Formatting formatting;
@@ -2107,7 +2116,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Private extends Modifier {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Formatting formatting;
@@ -2118,7 +2127,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Abstract extends Modifier {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Formatting formatting;
@@ -2129,7 +2138,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Static extends Modifier {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Formatting formatting;
@@ -2140,7 +2149,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Final extends Modifier {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Formatting formatting;
@@ -2151,7 +2160,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Native extends Modifier {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Formatting formatting;
@@ -2162,7 +2171,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Strictfp extends Modifier {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Formatting formatting;
@@ -2173,7 +2182,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Synchronized extends Modifier {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Formatting formatting;
@@ -2184,7 +2193,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Transient extends Modifier {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Formatting formatting;
@@ -2195,7 +2204,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Volatile extends Modifier {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Formatting formatting;
@@ -2207,7 +2216,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class MultiCatch extends Tr implements TypeTree {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         List<NameTree> alternatives;
@@ -2242,7 +2251,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class NewArray extends Tr implements Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         @Nullable
@@ -2272,7 +2281,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Dimension extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Expression size;
@@ -2286,7 +2295,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Initializer extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             List<Expression> elements;
@@ -2301,7 +2310,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class NewClass extends Tr implements Statement, Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         TypeTree clazz;
@@ -2342,7 +2351,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Arguments extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             List<Expression> args;
@@ -2357,7 +2366,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Package extends Tr {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Expression expr;
@@ -2376,7 +2385,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class ParameterizedType extends Tr implements TypeTree, Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         NameTree clazz;
@@ -2410,7 +2419,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Parentheses<T extends Tree> extends Tr implements Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         T tree;
@@ -2451,7 +2460,7 @@ public abstract class Tr implements Serializable, Tree {
     public static class Primitive extends Tr implements TypeTree, Expression {
         @Getter
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         Type.Primitive type;
 
@@ -2485,7 +2494,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Return extends Tr implements Statement {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         @Nullable
@@ -2511,7 +2520,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Switch extends Tr implements Statement {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Parentheses<Expression> selector;
@@ -2533,7 +2542,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Synchronized extends Tr implements Statement {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Parentheses<Expression> lock;
@@ -2555,7 +2564,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Ternary extends Tr implements Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Expression condition;
@@ -2584,7 +2593,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Throw extends Tr implements Statement {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Expression exception;
@@ -2610,7 +2619,7 @@ public abstract class Tr implements Serializable, Tree {
     public static class Try extends Tr implements Statement {
         @Getter
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         @Getter
@@ -2648,7 +2657,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Resources extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             List<VariableDecls> decls;
@@ -2662,7 +2671,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Catch extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Parentheses<VariableDecls> param;
@@ -2684,7 +2693,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Finally extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Block<Statement> body;
@@ -2704,7 +2713,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class TypeCast extends Tr implements Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Parentheses<TypeTree> clazz;
@@ -2737,7 +2746,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class TypeParameter extends Tr {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         List<Annotation> annotations;
@@ -2766,7 +2775,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Bounds extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             List<TypeTree> types;
@@ -2781,7 +2790,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class TypeParameters extends Tr {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         List<TypeParameter> params;
@@ -2800,7 +2809,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Unary extends Tr implements Statement, Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Operator operator;
@@ -2842,7 +2851,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class PreIncrement extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 Formatting formatting = EMPTY;
 
@@ -2858,7 +2867,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class PreDecrement extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 Formatting formatting = EMPTY;
 
@@ -2874,7 +2883,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class PostIncrement extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -2885,7 +2894,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class PostDecrement extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -2896,7 +2905,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Positive extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 Formatting formatting = EMPTY;
 
@@ -2912,7 +2921,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Negative extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 Formatting formatting = EMPTY;
 
@@ -2928,7 +2937,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Complement extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -2939,7 +2948,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Not extends Operator {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -2952,7 +2961,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class UnparsedSource extends Tr implements Statement, Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         String source;
@@ -2982,7 +2991,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class VariableDecls extends Tr implements Statement {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         List<Annotation> annotations;
@@ -3055,7 +3064,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Varargs extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Formatting formatting;
@@ -3066,7 +3075,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class Dimension extends Tr {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Empty whitespace;
@@ -3080,7 +3089,7 @@ public abstract class Tr implements Serializable, Tree {
         @Data
         public static class NamedVar extends Tr implements NameTree {
             @EqualsAndHashCode.Include
-            UUID id;
+            long id;
 
             @With
             Ident name;
@@ -3120,7 +3129,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class WhileLoop extends Tr implements Statement {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         Parentheses<Expression> condition;
@@ -3142,7 +3151,7 @@ public abstract class Tr implements Serializable, Tree {
     @Data
     public static class Wildcard extends Tr implements Expression {
         @EqualsAndHashCode.Include
-        UUID id;
+        long id;
 
         @With
         @Nullable
@@ -3178,7 +3187,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Extends extends Bound {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
@@ -3189,7 +3198,7 @@ public abstract class Tr implements Serializable, Tree {
             @Data
             public static class Super extends Bound {
                 @EqualsAndHashCode.Include
-                UUID id;
+                long id;
 
                 @With
                 Formatting formatting;
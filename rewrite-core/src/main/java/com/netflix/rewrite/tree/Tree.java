@@ -23,7 +23,6 @@ import com.netflix.rewrite.visitor.PrintVisitor;
 import com.netflix.rewrite.visitor.RetrieveCursorVisitor;
 
 import java.util.Optional;
-import java.util.UUID;
 
 @JsonTypeInfo(use = JsonTypeInfo.Id.MINIMAL_CLASS, property = "@c")
 public interface Tree {
@@ -32,7 +31,7 @@ public interface Tree {
     /**
      * An id that can be used to identify a particular AST element, even after transformations have taken place on it
      */
-    UUID getId();
+    long getId();
 
     /**
      * An overload that allows us to create a copy of any Tree element, optionally
@@ -57,7 +56,17 @@ public interface Tree {
     }
 
     default String print() {
-        return new PrintVisitor().visit(this);
+        var out = new StringBuilder();
+        print(out);
+        return out.toString();
+    }
+
+    /**
+     * Print the source code of this tree to a {@link StringBuilder}, {@link java.io.Writer}, or any other
+     * {@link Appendable} without building a String for it.
+     */
+    default void print(Appendable out) {
+        new PrintVisitor(out).visit(this);
     }
 
     @Nullable
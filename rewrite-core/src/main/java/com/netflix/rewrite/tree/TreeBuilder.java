@@ -29,6 +29,8 @@ import org.slf4j.helpers.MessageFormatter;
 
 import java.nio.charset.Charset;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -49,6 +51,14 @@ public class TreeBuilder {
     private static final Pattern whitespacePrefixPattern = Pattern.compile("^\\s*");
     private static final Pattern whitespaceSuffixPattern = Pattern.compile("\\s*[^\\s]+(\\s*)");
 
+    /**
+     * Each parser has a javac context of its own, which is expensive to create and warm up, so parsers are reused
+     * from one snippet to the next. A parser is only used by one thread at a time, and is only returned to the pool
+     * once it has been reset after parsing a snippet successfully.
+     */
+    private static final BlockingQueue<Parser> snippetParsers =
+            new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+
     private TreeBuilder() {
     }
 
@@ -94,8 +104,6 @@ public class TreeBuilder {
 
     @SuppressWarnings("unchecked")
     public static <T extends Tree> List<T> buildSnippet(Tr.CompilationUnit containing, Cursor insertionScope, String snippet, Tree... arguments) {
-        Parser parser = new Parser(emptyList(), Charset.defaultCharset(), true);
-
         // Turn this on in IntelliJ: Preferences > Editor > Code Style > Formatter Control
         // @formatter:off
         String source =
@@ -114,7 +122,17 @@ public class TreeBuilder {
             logger.debug(source);
         }
 
-        Tr.CompilationUnit cu = parser.parse(source);
+        Parser parser = snippetParsers.poll();
+        if (parser == null) {
+            parser = new Parser(emptyList(), Charset.defaultCharset(), true);
+        }
+
+        // a pooled parser may have been created while some other type cache was bound
+        Tr.CompilationUnit cu = parser.typeCache(TypeCache.current()).parse(source);
+
+        parser.reset();
+        snippetParsers.offer(parser);
+
         List<Tree> statements = cu.getClasses().get(0).getBody().getStatements();
         Tr.Block<T> block = (Tr.Block<T>) statements.get(statements.size() - 1);
 
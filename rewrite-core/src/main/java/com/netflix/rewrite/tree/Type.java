@@ -16,16 +16,17 @@
 package com.netflix.rewrite.tree;
 
 import com.fasterxml.jackson.annotation.*;
-import com.koloboke.collect.map.hash.HashObjObjMaps;
-import com.koloboke.collect.set.hash.HashObjSet;
-import com.koloboke.collect.set.hash.HashObjSets;
 import com.netflix.rewrite.internal.lang.Nullable;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.Getter;
 import lombok.With;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.Supplier;
 
 import static java.util.Collections.emptyList;
 import static java.util.Comparator.comparing;
@@ -37,6 +38,13 @@ import static java.util.stream.Collectors.toList;
 public interface Type extends Serializable {
     boolean deepEquals(@Nullable Type type);
 
+    /**
+     * A hash of this type's whole structure that is consistent with {@link #deepEquals(Type)}, so that types with
+     * different structural hashes can be told apart without comparing them deeply. Class and method types compute it
+     * once when they are built, so computing it for any other type only looks as deep as the nearest of these.
+     */
+    int structuralHash();
+
     @Data
     class MultiCatch implements Type {
         private final List<Type> throwableTypes;
@@ -46,6 +54,11 @@ public interface Type extends Serializable {
             return type instanceof MultiCatch &&
                     TypeUtils.deepEquals(throwableTypes, ((MultiCatch) type).throwableTypes);
         }
+
+        @Override
+        public int structuralHash() {
+            return TypeUtils.structuralHash(throwableTypes);
+        }
     }
 
     /**
@@ -61,29 +74,70 @@ public interface Type extends Serializable {
             return type instanceof ShallowClass &&
                     fullyQualifiedName.equals(((ShallowClass) type).fullyQualifiedName);
         }
+
+        @Override
+        public int structuralHash() {
+            return fullyQualifiedName.hashCode();
+        }
     }
 
     @Getter
     class Class implements Type {
-        // there shouldn't be too many distinct types represented by the same fully qualified name
-        private static final Map<String, HashObjSet<Class>> flyweights = HashObjObjMaps.newMutableMap();
-
         public static final Class OBJECT = build("java.lang.Object");
 
         private final String fullyQualifiedName;
-        private final List<Var> members;
         private final List<Type> typeParameters;
-        private final List<Type> interfaces;
 
+        @Getter(AccessLevel.NONE)
+        private List<Var> members;
+
+        @Getter(AccessLevel.NONE)
+        private List<Type> interfaces;
+
+        @Getter(AccessLevel.NONE)
         @Nullable
-        private final Class supertype;
+        private Class supertype;
 
-        private Class(String fullyQualifiedName, List<Var> members, List<Type> typeParameters, List<Type> interfaces, @Nullable Class supertype) {
+        /**
+         * Until a lazily built class is resolved, its members, interfaces, and supertype are empty.
+         */
+        @Getter(AccessLevel.NONE)
+        @Nullable
+        private transient volatile Supplier<Resolution> resolver;
+
+        @Getter(AccessLevel.NONE)
+        private final int structuralHash;
+
+        /**
+         * Whether the structural hash leaves out some of the structure, either because this class was built lazily or
+         * because it refers to a class that was.
+         */
+        @Getter(AccessLevel.NONE)
+        private final boolean partialHash;
+
+        private Class(String fullyQualifiedName, List<Var> members, List<Type> typeParameters, List<Type> interfaces,
+                      @Nullable Class supertype, @Nullable Supplier<Resolution> resolver) {
             this.fullyQualifiedName = fullyQualifiedName;
             this.members = members;
             this.typeParameters = typeParameters;
             this.interfaces = interfaces;
             this.supertype = supertype;
+            this.resolver = resolver;
+
+            if (resolver != null) {
+                // only what is known before a lazily built class is resolved, so that hashing doesn't resolve it
+                this.partialHash = true;
+                this.structuralHash = 31 * fullyQualifiedName.hashCode() + TypeUtils.structuralHash(typeParameters);
+            } else {
+                this.partialHash = TypeUtils.hasPartialHash(members) || TypeUtils.hasPartialHash(typeParameters) ||
+                        TypeUtils.hasPartialHash(supertype);
+
+                // interfaces aren't part of deep equality
+                int hash = fullyQualifiedName.hashCode();
+                hash = 31 * hash + TypeUtils.structuralHash(members);
+                hash = 31 * hash + TypeUtils.structuralHash(typeParameters);
+                this.structuralHash = 31 * hash + TypeUtils.structuralHash(supertype);
+            }
         }
 
         /**
@@ -112,19 +166,97 @@ public interface Type extends Serializable {
             // supertype hierarchy are equal
             var test = new Class(fullyQualifiedName,
                     members.stream().sorted(comparing(Var::getName)).collect(toList()),
-                    typeParameters, interfaces, supertype);
-
-            synchronized (flyweights) {
-                var variants = flyweights.computeIfAbsent(fullyQualifiedName, fqn -> HashObjSets.newMutableSet());
-                return (!relaxedClassTypeMatching ? variants.stream().filter(v -> v.deepEquals(test)) : variants.stream())
-                        .findAny()
-                        .orElseGet(() -> {
-                            variants.add(test);
-                            return test;
-                        });
+                    typeParameters, interfaces, supertype, null);
+
+            return TypeCache.current().internClass(test, relaxedClassTypeMatching);
+        }
+
+        /**
+         * Build a class type whose members, interfaces, and supertype are only resolved the first time any of them is
+         * needed, so that code which only looks at the fully qualified names of types never pays for their whole
+         * hierarchy. Lazily built classes aren't interned, as that would resolve them. Whoever builds them is
+         * responsible for sharing one instance per distinct type.
+         *
+         * @param resolver Supplies the members, interfaces, and supertype, on whichever thread first needs them. Threads
+         *                 that race to resolve the same class may each call it, but only one result is kept, and the
+         *                 resolver is released once the class is resolved.
+         */
+        public static Class lazy(String fullyQualifiedName, List<Type> typeParameters, Supplier<Resolution> resolver) {
+            return new Class(fullyQualifiedName, emptyList(), typeParameters, emptyList(), null, resolver);
+        }
+
+        public List<Var> getMembers() {
+            resolve();
+            return members;
+        }
+
+        public List<Type> getInterfaces() {
+            resolve();
+            return interfaces;
+        }
+
+        @Nullable
+        public Class getSupertype() {
+            resolve();
+            return supertype;
+        }
+
+        /**
+         * @return Whether a lazily built class has yet to be resolved.
+         */
+        @JsonIgnore
+        public boolean isLazy() {
+            return resolver != null;
+        }
+
+        /**
+         * @return Whether this class was built lazily or refers to a class that was, in which case its structural hash
+         * leaves out the members and supertype of the lazily built class, even once it is resolved.
+         */
+        boolean hasPartialHash() {
+            return partialHash;
+        }
+
+        private void resolve() {
+            Supplier<Resolution> r = resolver;
+            if (r != null) {
+                // resolvers take locks of their own, so no lock is held while one runs
+                Resolution resolution = r.get();
+                synchronized (this) {
+                    if (resolver != null) {
+                        members = resolution.getMembers().stream().sorted(comparing(Var::getName)).collect(toList());
+                        interfaces = resolution.getInterfaces();
+                        supertype = resolution.getSupertype();
+
+                        // published to other threads by this volatile write
+                        resolver = null;
+                    }
+                }
             }
         }
 
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            resolve();
+            out.defaultWriteObject();
+        }
+
+        /**
+         * The parts of a lazily built class that are resolved on first access.
+         */
+        @Data
+        public static class Resolution {
+            private final List<Var> members;
+            private final List<Type> interfaces;
+
+            @Nullable
+            private final Class supertype;
+        }
+
+        @Override
+        public int structuralHash() {
+            return structuralHash;
+        }
+
         @JsonIgnore
         public String getClassName() {
             return Arrays.stream(fullyQualifiedName.split("\\."))
@@ -151,6 +283,7 @@ public interface Type extends Serializable {
         @JsonIgnore
         public List<Type.Var> getVisibleSupertypeMembers() {
             List<Type.Var> members = new ArrayList<>();
+            Class supertype = getSupertype();
             if(supertype != null) {
                 supertype.getMembers().stream()
                         .filter(member -> !member.hasFlags(Flag.Private))
@@ -162,15 +295,19 @@ public interface Type extends Serializable {
 
         @Override
         public boolean deepEquals(@Nullable Type type) {
+            if (this == type) {
+                return true; // without resolving a lazily built class
+            }
+
             if (!(type instanceof Class)) {
                 return false;
             }
 
             Class c = (Class) type;
             return fullyQualifiedName.equals(c.fullyQualifiedName) &&
-                    TypeUtils.deepEquals(members, c.members) &&
-                    TypeUtils.deepEquals(supertype, c.supertype) &&
-                    TypeUtils.deepEquals(typeParameters, c.typeParameters);
+                    TypeUtils.deepEquals(typeParameters, c.typeParameters) &&
+                    TypeUtils.deepEquals(getMembers(), c.getMembers()) &&
+                    TypeUtils.deepEquals(getSupertype(), c.getSupertype());
         }
     }
 
@@ -182,6 +319,11 @@ public interface Type extends Serializable {
         public boolean deepEquals(Type type) {
             return this.equals(type);
         }
+
+        @Override
+        public int structuralHash() {
+            return fullyQualifiedName.hashCode();
+        }
     }
 
     @Data
@@ -207,12 +349,15 @@ public interface Type extends Serializable {
             return name.equals(v.name) && TypeUtils.deepEquals(this.type, v.type) &&
                     flags.equals(v.flags);
         }
+
+        @Override
+        public int structuralHash() {
+            return 31 * (31 * name.hashCode() + TypeUtils.structuralHash(type)) + flags.hashCode();
+        }
     }
 
     @Getter
     class Method implements Type {
-        private static final Map<Class, Map<String, Set<Method>>> flyweights = HashObjObjMaps.newMutableMap();
-
         @With
         private final Class declaringType;
 
@@ -224,6 +369,15 @@ public interface Type extends Serializable {
         @With
         private final Set<Flag> flags;
 
+        @Getter(AccessLevel.NONE)
+        private final int structuralHash;
+
+        /**
+         * Whether the structural hash leaves out some of the structure of a lazily built class this method refers to.
+         */
+        @Getter(AccessLevel.NONE)
+        private final boolean partialHash;
+
         private Method(Class declaringType, String name, Signature genericSignature, Signature resolvedSignature, List<String> paramNames, Set<Flag> flags) {
             this.declaringType = declaringType;
             this.name = name;
@@ -231,6 +385,16 @@ public interface Type extends Serializable {
             this.resolvedSignature = resolvedSignature;
             this.paramNames = paramNames;
             this.flags = flags;
+
+            int hash = name.hashCode();
+            hash = 31 * hash + paramNames.hashCode();
+            hash = 31 * hash + flags.hashCode();
+            hash = 31 * hash + declaringType.structuralHash();
+            hash = 31 * hash + signatureStructuralHash(genericSignature);
+            this.structuralHash = 31 * hash + signatureStructuralHash(resolvedSignature);
+
+            this.partialHash = declaringType.hasPartialHash() || signatureHasPartialHash(genericSignature) ||
+                    signatureHasPartialHash(resolvedSignature);
         }
 
         @JsonCreator
@@ -240,22 +404,13 @@ public interface Type extends Serializable {
                                    @JsonProperty("resolvedSignature") Signature resolvedSignature,
                                    @JsonProperty("paramNames") List<String> paramNames,
                                    @JsonProperty("flags") Set<Flag> flags) {
-            var test = new Method(declaringType, name, genericSignature, resolvedSignature, paramNames, flags);
-
-            synchronized (flyweights) {
-                Set<Method> methods = flyweights
-                        .computeIfAbsent(declaringType, dt -> HashObjObjMaps.newMutableMap())
-                        .computeIfAbsent(name, n -> HashObjSets.newMutableSet());
-
-                return methods
-                        .stream()
-                        .filter(m -> m.deepEquals(test))
-                        .findAny()
-                        .orElseGet(() -> {
-                            methods.add(test);
-                            return test;
-                        });
-            }
+            return TypeCache.current().internMethod(new Method(declaringType, name, genericSignature,
+                    resolvedSignature, paramNames, flags));
+        }
+
+        @Override
+        public int structuralHash() {
+            return structuralHash;
         }
 
         @Data
@@ -266,6 +421,21 @@ public interface Type extends Serializable {
             private final List<Type> paramTypes;
         }
 
+        private static int signatureStructuralHash(@Nullable Signature s) {
+            return s == null ? 0 : 31 * TypeUtils.structuralHash(s.returnType) + TypeUtils.structuralHash(s.paramTypes);
+        }
+
+        private static boolean signatureHasPartialHash(@Nullable Signature s) {
+            return s != null && (TypeUtils.hasPartialHash(s.returnType) || TypeUtils.hasPartialHash(s.paramTypes));
+        }
+
+        /**
+         * @see Class#hasPartialHash()
+         */
+        boolean hasPartialHash() {
+            return partialHash;
+        }
+
         private static boolean signatureDeepEquals(@Nullable Signature s1, @Nullable Signature s2) {
             return s1 == null ? s2 == null : s2 != null &&
                     TypeUtils.deepEquals(s1.returnType, s2.returnType) &&
@@ -283,9 +453,10 @@ public interface Type extends Serializable {
             }
 
             Method m = (Method) type;
-            return paramNames.equals(m.paramNames) &&
+            return name.equals(m.name) &&
+                    paramNames.equals(m.paramNames) &&
                     flags.equals(m.flags) &&
-                    declaringType.deepEquals(m.declaringType) &&
+                    TypeUtils.deepEquals(declaringType, m.declaringType) &&
                     signatureDeepEquals(genericSignature, m.genericSignature) &&
                     signatureDeepEquals(resolvedSignature, m.resolvedSignature);
         }
@@ -308,6 +479,11 @@ public interface Type extends Serializable {
             return fullyQualifiedName.equals(generic.fullyQualifiedName) &&
                     TypeUtils.deepEquals(bound, generic.bound);
         }
+
+        @Override
+        public int structuralHash() {
+            return 31 * fullyQualifiedName.hashCode() + TypeUtils.structuralHash(bound);
+        }
     }
 
     @Data
@@ -318,6 +494,11 @@ public interface Type extends Serializable {
         public boolean deepEquals(Type type) {
             return type instanceof Array && elemType.deepEquals(((Array) type).elemType);
         }
+
+        @Override
+        public int structuralHash() {
+            return 31 + elemType.structuralHash();
+        }
     }
 
     enum Primitive implements Type {
@@ -393,5 +574,10 @@ public interface Type extends Serializable {
         public boolean deepEquals(Type type) {
             return this == type;
         }
+
+        @Override
+        public int structuralHash() {
+            return ordinal();
+        }
     }
 }
@@ -0,0 +1,468 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite.tree;
+
+import com.koloboke.collect.map.hash.HashObjObjMaps;
+import com.netflix.rewrite.internal.lang.Nullable;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+/**
+ * Interns class and method types, identifiers, and formatting, so that the trees built against the same cache share
+ * them. Unless some other cache is bound to the current thread, everything is interned in a global cache that lives as
+ * long as the JVM.
+ * <p>
+ * Every cache is bounded by a maximum number of entries. Once it holds more, the entries of the least recently used
+ * fully qualified names, declaring types, identifier names, and formatting prefixes are evicted. Trees built against
+ * the cache keep the types they refer to, but equal types built after an eviction won't be shared with them.
+ * <p>
+ * A long-lived process that parses many unrelated source sets should bind a cache of its own to each
+ * {@link com.netflix.rewrite.Parser} (or with {@link #bind()} around any other code that builds trees, like
+ * deserialization or refactoring), so that everything interned for a source set can be reclaimed once its trees are
+ * no longer referenced. Types from different caches are never deeply equal by identity, so trees from different caches
+ * shouldn't be mixed.
+ */
+public class TypeCache {
+    /**
+     * Roughly 50MB of interned objects, or the types of a few thousand source files with their dependencies.
+     */
+    public static final long DEFAULT_MAX_ENTRIES = 1 << 20;
+
+    private static final TypeCache GLOBAL = new TypeCache();
+
+    private static final ThreadLocal<TypeCache> bound = new ThreadLocal<>();
+
+    // rough shallow sizes, in bytes, of interned objects on a 64-bit JVM with compressed references
+    private static final int CLASS_BYTES = 40;
+    private static final int METHOD_BYTES = 48;
+    private static final int IDENT_BYTES = 24;
+    private static final int FORMATTING_BYTES = 24;
+    private static final int REFERENCE_BYTES = 4;
+
+    /**
+     * Variants of each fully qualified name.
+     */
+    private final Map<String, Variants<Type.Class>> classes = new ConcurrentHashMap<>();
+
+    /**
+     * Methods of each declaring type.
+     */
+    private final Map<Type.Class, Variants<Type.Method>> methods = new ConcurrentHashMap<>();
+
+    /**
+     * Identifiers by name and type, which may be null.
+     */
+    private final Map<String, Idents> idents = new ConcurrentHashMap<>();
+
+    /**
+     * Suffixes are uncommon, so they are treated as a secondary index.
+     */
+    private final Map<String, Formats> formats = new ConcurrentHashMap<>();
+
+    private final long maxEntries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder entries = new LongAdder();
+    private final LongAdder approximateBytes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final Object evictionLock = new Object();
+
+    /**
+     * Whoever builds lazily resolved class types against this cache, if anyone does.
+     */
+    private final AtomicReference<Object> lazyTypesOwner = new AtomicReference<>();
+
+    public TypeCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries The number of interned objects above which the least recently used are evicted.
+     */
+    public TypeCache(long maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("A type cache must hold at least one entry, but was limited to " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    public static TypeCache global() {
+        return GLOBAL;
+    }
+
+    /**
+     * @return The cache bound to the current thread, or else the global cache.
+     */
+    public static TypeCache current() {
+        TypeCache cache = bound.get();
+        return cache == null ? GLOBAL : cache;
+    }
+
+    /**
+     * Binds this cache to the current thread until the returned scope is closed, at which point whichever cache
+     * was bound before is bound again.
+     */
+    public Scope bind() {
+        TypeCache previous = bound.get();
+        bound.set(this);
+        return () -> {
+            if (previous == null) {
+                bound.remove();
+            } else {
+                bound.set(previous);
+            }
+        };
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Removes everything that has been interned. Trees that were built against this cache keep the types they refer
+     * to, but types built from now on will not be shared with them.
+     */
+    public void clear() {
+        synchronized (evictionLock) {
+            classes.clear();
+            methods.clear();
+            idents.clear();
+            formats.clear();
+            entries.reset();
+            approximateBytes.reset();
+        }
+    }
+
+    /**
+     * Reserve this cache for the lazily built class types of a single owner. A lazily built class type is resolved
+     * while holding the lock on its parser's javac symbols, and interning compares against the types already in the
+     * cache, so two parsers building lazy types into the same cache could each wait on the other's lock forever.
+     *
+     * @throws IllegalStateException if this is the global cache, or if a different owner has reserved it already.
+     */
+    public void reserveForLazyTypes(Object owner) {
+        if (this == GLOBAL) {
+            throw new IllegalStateException("Class types can only be built lazily against a type cache of their own");
+        }
+        if (!lazyTypesOwner.compareAndSet(null, owner) && lazyTypesOwner.get() != owner) {
+            throw new IllegalStateException("This type cache is already reserved for the lazily built class types of another parser");
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), entries.sum(), approximateBytes.sum(), evictions.sum());
+    }
+
+    /**
+     * @see TypeCache#getStats()
+     */
+    @Data
+    public static class Stats {
+        /**
+         * Lookups that found an already interned object.
+         */
+        private final long hits;
+
+        /**
+         * Lookups that interned a new object.
+         */
+        private final long misses;
+
+        /**
+         * Objects interned and not yet evicted since the cache was last cleared.
+         */
+        private final long entries;
+
+        /**
+         * A rough estimate of the memory retained by interned objects, not counting strings they share with the trees
+         * that refer to them.
+         */
+        private final long approximateBytes;
+
+        /**
+         * Objects evicted to keep the cache within its maximum number of entries.
+         */
+        private final long evictions;
+    }
+
+    Type.Class internClass(Type.Class test, boolean relaxedClassTypeMatching) {
+        var variants = classes.computeIfAbsent(test.getFullyQualifiedName(), fqn -> new Variants<>());
+        variants.touch();
+        if (relaxedClassTypeMatching) {
+            var any = variants.any();
+            if (any != null) {
+                hits.increment();
+                return any;
+            }
+        }
+
+        var interned = intern(variants, test);
+        if (interned == test) {
+            added(variants, CLASS_BYTES + REFERENCE_BYTES * (test.getMembers().size() +
+                    test.getTypeParameters().size() + test.getInterfaces().size()));
+        }
+        return interned;
+    }
+
+    Type.Method internMethod(Type.Method test) {
+        var variants = methods.computeIfAbsent(test.getDeclaringType(), dt -> new Variants<>());
+        variants.touch();
+        var interned = intern(variants, test);
+        if (interned == test) {
+            added(variants, METHOD_BYTES + REFERENCE_BYTES * test.getParamNames().size());
+        }
+        return interned;
+    }
+
+    Tr.Ident.IdentFlyweight internIdent(String simpleName, @Nullable Type type) {
+        Idents byName = idents.computeIfAbsent(simpleName, n -> new Idents());
+        byName.touch();
+
+        // the type may be null, which concurrent maps don't allow as a key
+        Tr.Ident.IdentFlyweight ident;
+        synchronized (byName) {
+            ident = byName.byType.get(type);
+            if (ident == null) {
+                ident = new Tr.Ident.IdentFlyweight(simpleName, type);
+                byName.byType.put(type, ident);
+            } else {
+                hits.increment();
+                return ident;
+            }
+        }
+
+        misses.increment();
+        added(byName, IDENT_BYTES);
+        return ident;
+    }
+
+    Formatting internFormatting(String prefix, String suffix, BiFunction<String, String, Formatting> newFormatting) {
+        var byPrefix = formats.computeIfAbsent(prefix, p -> new Formats());
+        byPrefix.touch();
+
+        var formatting = byPrefix.bySuffix.get(suffix);
+        if (formatting != null) {
+            hits.increment();
+            return formatting;
+        }
+
+        var created = new boolean[1];
+        formatting = byPrefix.bySuffix.computeIfAbsent(suffix, s -> {
+            created[0] = true;
+            return newFormatting.apply(prefix, s);
+        });
+
+        if (created[0]) {
+            misses.increment();
+            added(byPrefix, FORMATTING_BYTES + 2 * (prefix.length() + suffix.length()));
+        } else {
+            hits.increment();
+        }
+        return formatting;
+    }
+
+    /**
+     * Finds a type that is deeply equal to {@code test} among the interned variants, or else interns {@code test}.
+     */
+    private <T extends Type> T intern(Variants<T> variants, T test) {
+        boolean partialHash = TypeUtils.hasPartialHash(test);
+        int hash = test.structuralHash();
+
+        T interned = variants.find(test, hash, partialHash);
+        if (interned == null) {
+            synchronized (variants) {
+                interned = variants.find(test, hash, partialHash);
+                if (interned == null) {
+                    variants.add(test, hash, partialHash);
+                    interned = test;
+                }
+            }
+        }
+
+        if (interned == test) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return interned;
+    }
+
+    /**
+     * The interned objects of one fully qualified name, declaring type, identifier name, or formatting prefix, which
+     * are evicted together.
+     */
+    private abstract static class Group {
+        private volatile long lastUsed = System.nanoTime();
+        private final AtomicLong entries = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private volatile boolean evicted;
+
+        void touch() {
+            lastUsed = System.nanoTime();
+        }
+    }
+
+    /**
+     * Variants bucketed by {@link Type#structuralHash()}, apart from those whose hash is partial (because they refer to
+     * a lazily built class), which a deeply equal type needn't share a hash with. Buckets are copy-on-write, so
+     * lookups don't lock, and only insertions lock the variants they add to.
+     */
+    private static class Variants<T extends Type> extends Group {
+        private final Map<Integer, List<T>> byHash = new ConcurrentHashMap<>();
+        private volatile List<T> partiallyHashed = emptyList();
+
+        @Nullable
+        private T any() {
+            var buckets = byHash.values().iterator();
+            if (buckets.hasNext()) {
+                return buckets.next().get(0);
+            }
+            List<T> partial = partiallyHashed;
+            return partial.isEmpty() ? null : partial.get(0);
+        }
+
+        @Nullable
+        private T find(T test, int hash, boolean partialHash) {
+            if (partialHash) {
+                for (List<T> bucket : byHash.values()) {
+                    T found = find(bucket, test);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+            } else {
+                List<T> bucket = byHash.get(hash);
+                if (bucket != null) {
+                    T found = find(bucket, test);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+            }
+            return find(partiallyHashed, test);
+        }
+
+        @Nullable
+        private T find(List<T> candidates, T test) {
+            for (T variant : candidates) {
+                if (variant.deepEquals(test)) {
+                    return variant;
+                }
+            }
+            return null;
+        }
+
+        private void add(T test, int hash, boolean partialHash) {
+            if (partialHash) {
+                partiallyHashed = copyWith(partiallyHashed, test);
+            } else {
+                byHash.put(hash, copyWith(byHash.getOrDefault(hash, emptyList()), test));
+            }
+        }
+
+        private static <T> List<T> copyWith(List<T> list, T t) {
+            if (list.isEmpty()) {
+                return singletonList(t);
+            }
+            List<T> copy = new ArrayList<>(list.size() + 1);
+            copy.addAll(list);
+            copy.add(t);
+            return copy;
+        }
+    }
+
+    private static class Idents extends Group {
+        private final Map<Type, Tr.Ident.IdentFlyweight> byType = HashObjObjMaps.newMutableMap();
+    }
+
+    private static class Formats extends Group {
+        private final Map<String, Formatting> bySuffix = new ConcurrentHashMap<>();
+    }
+
+    private void added(Group group, int bytes) {
+        group.entries.incrementAndGet();
+        group.bytes.addAndGet(bytes);
+        entries.increment();
+        approximateBytes.add(bytes);
+
+        if (group.evicted) {
+            // added to a group that was evicted concurrently, so it is no longer counted
+            entries.decrement();
+            approximateBytes.add(-bytes);
+        }
+
+        if (entries.sum() > maxEntries) {
+            evict();
+        }
+    }
+
+    /**
+     * Evicts the least recently used groups until the cache is a quarter below its maximum number of entries, so that
+     * the cost of finding them is shared by many insertions.
+     */
+    private void evict() {
+        synchronized (evictionLock) {
+            if (entries.sum() <= maxEntries) {
+                return;
+            }
+
+            List<Map.Entry<?, ? extends Group>> groups = new ArrayList<>();
+            for (Map<?, ? extends Group> byKey : List.<Map<?, ? extends Group>>of(classes, methods, idents, formats)) {
+                groups.addAll(byKey.entrySet());
+            }
+            groups.sort(Comparator.comparingLong(group -> group.getValue().lastUsed));
+
+            long target = maxEntries - maxEntries / 4;
+            for (Map.Entry<?, ? extends Group> group : groups) {
+                if (entries.sum() <= target) {
+                    break;
+                }
+                if (remove(group.getKey(), group.getValue())) {
+                    Group evicted = group.getValue();
+                    evicted.evicted = true;
+                    long evictedEntries = evicted.entries.get();
+                    entries.add(-evictedEntries);
+                    approximateBytes.add(-evicted.bytes.get());
+                    evictions.add(evictedEntries);
+                }
+            }
+        }
+    }
+
+    private boolean remove(Object key, Group group) {
+        if (group instanceof Variants) {
+            return key instanceof String ? classes.remove(key, group) : methods.remove(key, group);
+        } else if (group instanceof Idents) {
+            return idents.remove(key, group);
+        }
+        return formats.remove(key, group);
+    }
+}
@@ -99,6 +99,54 @@ public class TypeUtils {
     }
 
     static boolean deepEquals(@Nullable Type t, @Nullable Type t2) {
-        return t == null ? t2 == null : t.deepEquals(t2);
+        if (t == t2) {
+            return true;
+        }
+        if (t == null || t2 == null) {
+            return false;
+        }
+        return (hasPartialHash(t) || hasPartialHash(t2) || t.structuralHash() == t2.structuralHash()) && t.deepEquals(t2);
+    }
+
+    /**
+     * A lazily built class is hashed before its members are known, and so is every type that refers to one, so a
+     * difference in the hashes of such types can't rule out deep equality.
+     */
+    static boolean hasPartialHash(@Nullable Type t) {
+        if (t instanceof Type.Class) {
+            return ((Type.Class) t).hasPartialHash();
+        } else if (t instanceof Type.Method) {
+            return ((Type.Method) t).hasPartialHash();
+        } else if (t instanceof Type.Var) {
+            return hasPartialHash(((Type.Var) t).getType());
+        } else if (t instanceof Type.Array) {
+            return hasPartialHash(((Type.Array) t).getElemType());
+        } else if (t instanceof Type.GenericTypeVariable) {
+            return hasPartialHash(((Type.GenericTypeVariable) t).getBound());
+        } else if (t instanceof Type.MultiCatch) {
+            return hasPartialHash(((Type.MultiCatch) t).getThrowableTypes());
+        }
+        return false;
+    }
+
+    static boolean hasPartialHash(List<? extends Type> ts) {
+        for (Type t : ts) {
+            if (hasPartialHash(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static int structuralHash(@Nullable Type t) {
+        return t == null ? 0 : t.structuralHash();
+    }
+
+    static int structuralHash(List<? extends Type> ts) {
+        int hash = 1;
+        for (Type t : ts) {
+            hash = 31 * hash + structuralHash(t);
+        }
+        return hash;
     }
 }
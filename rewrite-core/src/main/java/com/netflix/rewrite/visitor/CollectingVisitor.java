@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite.visitor;
+
+import com.netflix.rewrite.internal.lang.Nullable;
+import com.netflix.rewrite.tree.Tree;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * A visitor whose result is a single collection that each visited element adds to in place with {@link #collect},
+ * rather than one that returns a new collection for each element and concatenates them on the way back up the tree.
+ * <p>
+ * Every top-level call to {@link #visit(Tree)} or {@link #visit(Iterable)} starts a new collection, so an instance
+ * may be reused, but not shared between threads.
+ */
+public abstract class CollectingVisitor<T, C extends Collection<T>> extends AstVisitor<C> {
+    private final Supplier<C> newCollection;
+    private C collected;
+    private int depth = 0;
+
+    protected CollectingVisitor(Supplier<C> newCollection) {
+        this.newCollection = newCollection;
+        this.collected = newCollection.get();
+    }
+
+    @Override
+    public C defaultTo(@Nullable Tree t) {
+        return collected;
+    }
+
+    @Override
+    public C reduce(C r1, C r2) {
+        return r1; // every result is the one collection being collected into
+    }
+
+    protected C collect(T t) {
+        collected.add(t);
+        return collected;
+    }
+
+    @Override
+    public C visit(@Nullable Tree tree) {
+        start();
+        try {
+            return super.visit(tree);
+        } finally {
+            depth--;
+        }
+    }
+
+    @Override
+    public C visit(@Nullable Iterable<? extends Tree> nodes) {
+        start();
+        try {
+            return super.visit(nodes);
+        } finally {
+            depth--;
+        }
+    }
+
+    private void start() {
+        if (depth++ == 0) {
+            collected = newCollection.get();
+        }
+    }
+}
@@ -16,128 +16,220 @@
 package com.netflix.rewrite.visitor;
 
 import com.netflix.rewrite.internal.lang.Nullable;
+import com.netflix.rewrite.tree.OriginalSource;
 import com.netflix.rewrite.tree.Statement;
 import com.netflix.rewrite.tree.Tr;
 import com.netflix.rewrite.tree.Tree;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 
 import static com.netflix.rewrite.tree.Tr.Modifier.*;
-import static java.util.stream.StreamSupport.stream;
 
-public class PrintVisitor extends AstVisitor<String> {
+/**
+ * Prints trees by appending each element's formatting and code to a single {@link Appendable} in source order,
+ * so that printing takes time linear in the size of the printed source.
+ * <p>
+ * Within a compilation unit that was parsed from source, elements that are unchanged since they were parsed are
+ * copied from the {@link OriginalSource} instead, so that printing a refactored compilation unit costs time in
+ * proportion to what changed.
+ */
+public class PrintVisitor extends AstVisitor<Void> {
+    private final Appendable out;
+
+    @Nullable
+    private OriginalSource originalSource;
+
+    public PrintVisitor(Appendable out) {
+        this.out = out;
+    }
+
     @Override
-    public String defaultTo(Tree t) {
-        return "";
+    public Void visit(@Nullable Tree tree) {
+        if (tree instanceof Tr.CompilationUnit) {
+            originalSource = ((Tr.CompilationUnit) tree).getOriginalSource();
+        }
+
+        try {
+            if (tree != null && originalSource != null && originalSource.appendTo(out, tree)) {
+                return null;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return super.visit(tree);
     }
 
     @Override
-    public String reduce(String r1, String r2) {
-        return r1 + r2;
+    public Void defaultTo(@Nullable Tree t) {
+        return null;
     }
 
-    private String visit(Collection<? extends Tree> nodes, String suffixBetween) {
-        return visit(nodes, suffixBetween, "");
+    @Override
+    public Void reduce(Void r1, Void r2) {
+        return null;
     }
 
-    private String visit(Collection<? extends Tree> nodes, String suffixBetween, String suffixEnd) {
-        var acc = "";
-        Tree[] array = nodes.toArray(Tree[]::new);
-        for (int i = 0; i < array.length; i++) {
-            Tree node = array[i];
-            acc = reduce(acc, visit(node) + (i == array.length - 1 ? suffixEnd : suffixBetween));
+    private void append(CharSequence code) {
+        try {
+            out.append(code);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return acc;
     }
 
-    private String visitStatements(Collection<? extends Tree> statements) {
-        return statements.stream()
-                .map(this::fmtStatement)
-                .reduce("", this::reduce);
+    private void prefix(Tree tree) {
+        append(tree.getFormatting().getPrefix());
+    }
+
+    private void suffix(Tree tree) {
+        append(tree.getFormatting().getSuffix());
     }
 
-    private String fmtStatement(Tree statement) {
-        String semicolonOrEmpty = (statement instanceof Statement && ((Statement) statement).isSemicolonTerminated()) ||
-                (statement instanceof Tr.MethodDecl && ((Tr.MethodDecl) statement).isAbstract()) ? ";" : "";
-        return visit(statement) + semicolonOrEmpty;
+    private void visit(Collection<? extends Tree> nodes, String suffixBetween) {
+        visit(nodes, suffixBetween, "");
     }
 
-    private String fmt(@Nullable Tree tree, @Nullable String code) {
-        return tree == null || code == null ? "" : tree.getFormatting().getPrefix() + code + tree.getFormatting().getSuffix();
+    private void visit(Collection<? extends Tree> nodes, String suffixBetween, String suffixEnd) {
+        int i = 0;
+        int last = nodes.size() - 1;
+        for (Tree node : nodes) {
+            visit(node);
+            append(i++ == last ? suffixEnd : suffixBetween);
+        }
     }
 
-    private String visitModifiers(Iterable<Tr.Modifier> modifiers) {
-        return stream(modifiers.spliterator(), false)
-                .map(mod -> {
-                    String keyword = "";
-                    if (mod instanceof Public) {
-                        keyword = "public";
-                    } else if (mod instanceof Protected) {
-                        keyword = "protected";
-                    } else if (mod instanceof Private) {
-                        keyword = "private";
-                    } else if (mod instanceof Abstract) {
-                        keyword = "abstract";
-                    } else if (mod instanceof Native) {
-                        keyword = "native";
-                    } else if (mod instanceof Static) {
-                        keyword = "static";
-                    } else if (mod instanceof Strictfp) {
-                        keyword = "strictfp";
-                    } else if (mod instanceof Final) {
-                        keyword = "final";
-                    } else if (mod instanceof Transient) {
-                        keyword = "transient";
-                    } else if (mod instanceof Volatile) {
-                        keyword = "volatile";
-                    } else if (mod instanceof Default) {
-                        keyword = "default";
-                    } else if (mod instanceof Modifier.Synchronized) {
-                        keyword = "synchronized";
-                    }
-                    return fmt(mod, keyword);
-                })
-                .reduce("", this::reduce);
+    private void visitStatements(Collection<? extends Tree> statements) {
+        for (Tree statement : statements) {
+            fmtStatement(statement);
+        }
     }
 
-    private String visitDims(Collection<Tr.VariableDecls.Dimension> dims) {
-        return dims.stream().map(d -> fmt(d, "[" + visit(d.getWhitespace()) + "]"))
-                .reduce("", this::reduce);
+    private void fmtStatement(Tree statement) {
+        visit(statement);
+        if ((statement instanceof Statement && ((Statement) statement).isSemicolonTerminated()) ||
+                (statement instanceof Tr.MethodDecl && ((Tr.MethodDecl) statement).isAbstract())) {
+            append(";");
+        }
+    }
+
+    private void fmt(@Nullable Tree tree, @Nullable String code) {
+        if (tree != null && code != null) {
+            prefix(tree);
+            append(code);
+            suffix(tree);
+        }
+    }
+
+    private void visitModifiers(Iterable<Tr.Modifier> modifiers) {
+        for (Tr.Modifier mod : modifiers) {
+            String keyword = "";
+            if (mod instanceof Public) {
+                keyword = "public";
+            } else if (mod instanceof Protected) {
+                keyword = "protected";
+            } else if (mod instanceof Private) {
+                keyword = "private";
+            } else if (mod instanceof Abstract) {
+                keyword = "abstract";
+            } else if (mod instanceof Native) {
+                keyword = "native";
+            } else if (mod instanceof Static) {
+                keyword = "static";
+            } else if (mod instanceof Strictfp) {
+                keyword = "strictfp";
+            } else if (mod instanceof Final) {
+                keyword = "final";
+            } else if (mod instanceof Transient) {
+                keyword = "transient";
+            } else if (mod instanceof Volatile) {
+                keyword = "volatile";
+            } else if (mod instanceof Default) {
+                keyword = "default";
+            } else if (mod instanceof Modifier.Synchronized) {
+                keyword = "synchronized";
+            }
+            fmt(mod, keyword);
+        }
+    }
+
+    private void visitDims(Collection<Tr.VariableDecls.Dimension> dims) {
+        for (Tr.VariableDecls.Dimension d : dims) {
+            prefix(d);
+            append("[");
+            visit(d.getWhitespace());
+            append("]");
+            suffix(d);
+        }
     }
 
     @Override
-    public String visitAnnotation(Tr.Annotation annotation) {
-        var args = annotation.getArgs() == null ? "" :
-                fmt(annotation.getArgs(), "(" + visit(annotation.getArgs().getArgs(), ",") + ")");
-        return fmt(annotation, "@" + visit(annotation.getAnnotationType()) + args);
+    public Void visitAnnotation(Tr.Annotation annotation) {
+        prefix(annotation);
+        append("@");
+        visit(annotation.getAnnotationType());
+        if (annotation.getArgs() != null) {
+            prefix(annotation.getArgs());
+            append("(");
+            visit(annotation.getArgs().getArgs(), ",");
+            append(")");
+            suffix(annotation.getArgs());
+        }
+        suffix(annotation);
+        return null;
     }
 
     @Override
-    public String visitArrayAccess(Tr.ArrayAccess arrayAccess) {
-        var dimension = fmt(arrayAccess.getDimension(), "[" + visit(arrayAccess.getDimension().getIndex()) + "]");
-        return fmt(arrayAccess, visit(arrayAccess.getIndexed()) + dimension);
+    public Void visitArrayAccess(Tr.ArrayAccess arrayAccess) {
+        prefix(arrayAccess);
+        visit(arrayAccess.getIndexed());
+        prefix(arrayAccess.getDimension());
+        append("[");
+        visit(arrayAccess.getDimension().getIndex());
+        append("]");
+        suffix(arrayAccess.getDimension());
+        suffix(arrayAccess);
+        return null;
     }
 
     @Override
-    public String visitArrayType(Tr.ArrayType arrayType) {
-        var dimension = arrayType.getDimensions().stream()
-                .map(d -> fmt(d, "[" + visit(d.getInner()) + "]"))
-                .reduce("", this::reduce);
-        return fmt(arrayType, visit(arrayType.getElementType()) + dimension);
+    public Void visitArrayType(Tr.ArrayType arrayType) {
+        prefix(arrayType);
+        visit(arrayType.getElementType());
+        for (Tr.ArrayType.Dimension d : arrayType.getDimensions()) {
+            prefix(d);
+            append("[");
+            visit(d.getInner());
+            append("]");
+            suffix(d);
+        }
+        suffix(arrayType);
+        return null;
     }
 
     @Override
-    public String visitAssert(Tr.Assert azzert) {
-        return fmt(azzert, "assert" + visit(azzert.getCondition()));
+    public Void visitAssert(Tr.Assert azzert) {
+        prefix(azzert);
+        append("assert");
+        visit(azzert.getCondition());
+        suffix(azzert);
+        return null;
     }
 
     @Override
-    public String visitAssign(Tr.Assign assign) {
-        return fmt(assign, visit(assign.getVariable()) + "=" + visit(assign.getAssignment()));
+    public Void visitAssign(Tr.Assign assign) {
+        prefix(assign);
+        visit(assign.getVariable());
+        append("=");
+        visit(assign.getAssignment());
+        suffix(assign);
+        return null;
     }
 
     @Override
-    public String visitAssignOp(Tr.AssignOp assignOp) {
+    public Void visitAssignOp(Tr.AssignOp assignOp) {
         String keyword = "";
         if (assignOp.getOperator() instanceof Tr.AssignOp.Operator.Addition) {
             keyword = "+=";
@@ -163,11 +255,16 @@ public class PrintVisitor extends AstVisitor<String> {
             keyword = ">>>=";
         }
 
-        return fmt(assignOp, visit(assignOp.getVariable()) + fmt(assignOp.getOperator(), keyword) + visit(assignOp.getAssignment()));
+        prefix(assignOp);
+        visit(assignOp.getVariable());
+        fmt(assignOp.getOperator(), keyword);
+        visit(assignOp.getAssignment());
+        suffix(assignOp);
+        return null;
     }
 
     @Override
-    public String visitBinary(Tr.Binary binary) {
+    public Void visitBinary(Tr.Binary binary) {
         String keyword = "";
         if (binary.getOperator() instanceof Tr.Binary.Operator.Addition) {
             keyword = "+";
@@ -209,33 +306,57 @@ public class PrintVisitor extends AstVisitor<String> {
             keyword = "&&";
         }
 
-        return fmt(binary, visit(binary.getLeft()) + fmt(binary.getOperator(), keyword) + visit(binary.getRight()));
+        prefix(binary);
+        visit(binary.getLeft());
+        fmt(binary.getOperator(), keyword);
+        visit(binary.getRight());
+        suffix(binary);
+        return null;
     }
 
     @Override
-    public String visitBlock(Tr.Block<Tree> block) {
-        return fmt(block, fmt(block.getStatic(), "static") + "{" + visitStatements(block.getStatements()) + block.getEndOfBlockSuffix() + "}");
+    public Void visitBlock(Tr.Block<Tree> block) {
+        prefix(block);
+        fmt(block.getStatic(), "static");
+        append("{");
+        visitStatements(block.getStatements());
+        append(block.getEndOfBlockSuffix());
+        append("}");
+        suffix(block);
+        return null;
     }
 
     @Override
-    public String visitBreak(Tr.Break breakStatement) {
-        return fmt(breakStatement, "break" + visit(breakStatement.getLabel()));
+    public Void visitBreak(Tr.Break breakStatement) {
+        prefix(breakStatement);
+        append("break");
+        visit(breakStatement.getLabel());
+        suffix(breakStatement);
+        return null;
     }
 
     @Override
-    public String visitCase(Tr.Case caze) {
-        return fmt(caze, visit(caze.getPattern()) + ":" + visitStatements(caze.getStatements()));
+    public Void visitCase(Tr.Case caze) {
+        prefix(caze);
+        visit(caze.getPattern());
+        append(":");
+        visitStatements(caze.getStatements());
+        suffix(caze);
+        return null;
     }
 
     @Override
-    public String visitCatch(Try.Catch catzh) {
-        return fmt(catzh, "catch" + visit(catzh.getParam()) + visit(catzh.getBody()));
+    public Void visitCatch(Try.Catch catzh) {
+        prefix(catzh);
+        append("catch");
+        visit(catzh.getParam());
+        visit(catzh.getBody());
+        suffix(catzh);
+        return null;
     }
 
     @Override
-    public String visitClassDecl(Tr.ClassDecl classDecl) {
-        var modifiers = visitModifiers(classDecl.getModifiers());
-
+    public Void visitClassDecl(Tr.ClassDecl classDecl) {
         var kind = "";
         if (classDecl.getKind() instanceof ClassDecl.Kind.Class) {
             kind = "class";
@@ -247,185 +368,372 @@ public class PrintVisitor extends AstVisitor<String> {
             kind = "@interface";
         }
 
-        return fmt(classDecl, visit(classDecl.getAnnotations()) +
-                modifiers + fmt(classDecl.getKind(), kind) + visit(classDecl.getName()) +
-                visit(classDecl.getTypeParameters()) + visit(classDecl.getExtends()) + visit(classDecl.getImplements(), ",") +
-                visit(classDecl.getBody()));
-    }
-
-    @Override
-    public String visitCompilationUnit(CompilationUnit cu) {
-        return fmt(cu, (cu.getPackageDecl() == null ? "" : visit(cu.getPackageDecl()) + ";") +
-                visit(cu.getImports(), ";", ";") +
-                visit(cu.getClasses()));
+        prefix(classDecl);
+        visit(classDecl.getAnnotations());
+        visitModifiers(classDecl.getModifiers());
+        fmt(classDecl.getKind(), kind);
+        visit(classDecl.getName());
+        visit(classDecl.getTypeParameters());
+        visit(classDecl.getExtends());
+        visit(classDecl.getImplements(), ",");
+        visit(classDecl.getBody());
+        suffix(classDecl);
+        return null;
+    }
+
+    @Override
+    public Void visitCompilationUnit(CompilationUnit cu) {
+        prefix(cu);
+        if (cu.getPackageDecl() != null) {
+            visit(cu.getPackageDecl());
+            append(";");
+        }
+        visit(cu.getImports(), ";", ";");
+        visit(cu.getClasses());
+        suffix(cu);
+        return null;
     }
 
     @Override
-    public String visitContinue(Continue continueStatement) {
-        return fmt(continueStatement, "continue" + visit(continueStatement.getLabel()));
+    public Void visitContinue(Continue continueStatement) {
+        prefix(continueStatement);
+        append("continue");
+        visit(continueStatement.getLabel());
+        suffix(continueStatement);
+        return null;
     }
 
     @Override
-    public String visitDoWhileLoop(DoWhileLoop doWhileLoop) {
-        return fmt(doWhileLoop, "do" + fmtStatement(doWhileLoop.getBody()) + fmt(doWhileLoop.getWhileCondition(), "while") + visit(doWhileLoop.getWhileCondition().getCondition()));
+    public Void visitDoWhileLoop(DoWhileLoop doWhileLoop) {
+        prefix(doWhileLoop);
+        append("do");
+        fmtStatement(doWhileLoop.getBody());
+        fmt(doWhileLoop.getWhileCondition(), "while");
+        visit(doWhileLoop.getWhileCondition().getCondition());
+        suffix(doWhileLoop);
+        return null;
     }
 
     @Override
-    public String visitEmpty(Empty empty) {
-        return fmt(empty, "");
+    public Void visitEmpty(Empty empty) {
+        fmt(empty, "");
+        return null;
     }
 
     @Override
-    public String visitEnumValue(EnumValue enoom) {
-        var initializer = enoom.getInitializer() == null ? "" :
-                fmt(enoom.getInitializer(), "(" + visit(enoom.getInitializer().getArgs(), ",") + ")");
-        return fmt(enoom, visit(enoom.getName()) + initializer);
+    public Void visitEnumValue(EnumValue enoom) {
+        prefix(enoom);
+        visit(enoom.getName());
+        if (enoom.getInitializer() != null) {
+            prefix(enoom.getInitializer());
+            append("(");
+            visit(enoom.getInitializer().getArgs(), ",");
+            append(")");
+            suffix(enoom.getInitializer());
+        }
+        suffix(enoom);
+        return null;
     }
 
     @Override
-    public String visitEnumValueSet(EnumValueSet enums) {
-        return fmt(enums, visit(enums.getEnums(), ",") +
-                (enums.isTerminatedWithSemicolon() ? ";" : ""));
+    public Void visitEnumValueSet(EnumValueSet enums) {
+        prefix(enums);
+        visit(enums.getEnums(), ",");
+        if (enums.isTerminatedWithSemicolon()) {
+            append(";");
+        }
+        suffix(enums);
+        return null;
     }
 
     @Override
-    public String visitFieldAccess(FieldAccess fieldAccess) {
-        return fmt(fieldAccess, visit(fieldAccess.getTarget()) + "." + visit(fieldAccess.getName()));
+    public Void visitFieldAccess(FieldAccess fieldAccess) {
+        prefix(fieldAccess);
+        visit(fieldAccess.getTarget());
+        append(".");
+        visit(fieldAccess.getName());
+        suffix(fieldAccess);
+        return null;
     }
 
-    public String visitFinally(Try.Finally finallie) {
-        return fmt(finallie, "finally" + visit(finallie.getBody()));
+    public Void visitFinally(Try.Finally finallie) {
+        prefix(finallie);
+        append("finally");
+        visit(finallie.getBody());
+        suffix(finallie);
+        return null;
     }
 
     @Override
-    public String visitForLoop(ForLoop forLoop) {
+    public Void visitForLoop(ForLoop forLoop) {
         ForLoop.Control ctrl = forLoop.getControl();
-        var expr = fmt(ctrl, "(" + visit(ctrl.getInit()) + ";" + visit(ctrl.getCondition()) + ";" + visit(ctrl.getUpdate(), ",", "") + ")");
-        return fmt(forLoop, "for" + expr + fmtStatement(forLoop.getBody()));
-    }
-
-    @Override
-    public String visitForEachLoop(ForEachLoop forEachLoop) {
+        prefix(forLoop);
+        append("for");
+        prefix(ctrl);
+        append("(");
+        visit(ctrl.getInit());
+        append(";");
+        visit(ctrl.getCondition());
+        append(";");
+        visit(ctrl.getUpdate(), ",", "");
+        append(")");
+        suffix(ctrl);
+        fmtStatement(forLoop.getBody());
+        suffix(forLoop);
+        return null;
+    }
+
+    @Override
+    public Void visitForEachLoop(ForEachLoop forEachLoop) {
         ForEachLoop.Control ctrl = forEachLoop.getControl();
-        var expr = fmt(ctrl, "(" + visit(ctrl.getVariable()) + ":" + visit(ctrl.getIterable()) + ")");
-        return fmt(forEachLoop, "for" + expr + fmtStatement(forEachLoop.getBody()));
+        prefix(forEachLoop);
+        append("for");
+        prefix(ctrl);
+        append("(");
+        visit(ctrl.getVariable());
+        append(":");
+        visit(ctrl.getIterable());
+        append(")");
+        suffix(ctrl);
+        fmtStatement(forEachLoop.getBody());
+        suffix(forEachLoop);
+        return null;
+    }
+
+    @Override
+    public Void visitIdentifier(Ident ident) {
+        fmt(ident, ident.getSimpleName());
+        return null;
+    }
+
+    @Override
+    public Void visitIf(If iff) {
+        prefix(iff);
+        append("if");
+        visit(iff.getIfCondition());
+        fmtStatement(iff.getThenPart());
+        if (iff.getElsePart() != null) {
+            prefix(iff.getElsePart());
+            append("else");
+            fmtStatement(iff.getElsePart().getStatement());
+            suffix(iff.getElsePart());
+        }
+        suffix(iff);
+        return null;
     }
 
     @Override
-    public String visitIdentifier(Ident ident) {
-        return fmt(ident, ident.getSimpleName());
+    public Void visitImport(Import impoort) {
+        prefix(impoort);
+        append(impoort.isStatic() ? "import static" : "import");
+        visit(impoort.getQualid());
+        suffix(impoort);
+        return null;
     }
 
     @Override
-    public String visitIf(If iff) {
-        var elsePart = iff.getElsePart() == null ? "" :
-                fmt(iff.getElsePart(), "else" + fmtStatement(iff.getElsePart().getStatement()));
-        return fmt(iff, "if" + visit(iff.getIfCondition()) + fmtStatement(iff.getThenPart()) + elsePart);
+    public Void visitInstanceOf(InstanceOf instanceOf) {
+        prefix(instanceOf);
+        visit(instanceOf.getExpr());
+        append("instanceof");
+        visit(instanceOf.getClazz());
+        suffix(instanceOf);
+        return null;
     }
 
     @Override
-    public String visitImport(Import impoort) {
-        return fmt(impoort, "import" + (impoort.isStatic() ? " static" : "") + visit(impoort.getQualid()));
+    public Void visitLabel(Label label) {
+        prefix(label);
+        visit(label.getLabel());
+        append(":");
+        visit(label.getStatement());
+        suffix(label);
+        return null;
     }
 
     @Override
-    public String visitInstanceOf(InstanceOf instanceOf) {
-        return fmt(instanceOf, visit(instanceOf.getExpr()) + "instanceof" + visit(instanceOf.getClazz()));
+    public Void visitLambda(Lambda lambda) {
+        var paramSet = lambda.getParamSet();
+        prefix(lambda);
+        prefix(paramSet);
+        if (paramSet.isParenthesized()) {
+            append("(");
+        }
+        visit(paramSet.getParams(), ",");
+        if (paramSet.isParenthesized()) {
+            append(")");
+        }
+        suffix(paramSet);
+        fmt(lambda.getArrow(), "->");
+        visit(lambda.getBody());
+        suffix(lambda);
+        return null;
     }
 
     @Override
-    public String visitLabel(Label label) {
-        return fmt(label, visit(label.getLabel()) + ":" + visit(label.getStatement()));
+    public Void visitLiteral(Literal literal) {
+        fmt(literal, literal.getValueSource());
+        return null;
     }
 
     @Override
-    public String visitLambda(Lambda lambda) {
-        var params = visit(lambda.getParamSet().getParams(), ",");
-        var paramSet = fmt(lambda.getParamSet(), lambda.getParamSet().isParenthesized() ? "(" + params + ")" : params);
-        return fmt(lambda, paramSet + fmt(lambda.getArrow(), "->") + visit(lambda.getBody()));
+    public Void visitMemberReference(MemberReference memberRef) {
+        prefix(memberRef);
+        visit(memberRef.getContaining());
+        append("::");
+        visit(memberRef.getTypeParameters());
+        visit(memberRef.getReference());
+        suffix(memberRef);
+        return null;
     }
 
     @Override
-    public String visitLiteral(Literal literal) {
-        return fmt(literal, literal.getValueSource());
-    }
+    public Void visitMethod(MethodDecl method) {
+        prefix(method);
+        visit(method.getAnnotations());
+        visitModifiers(method.getModifiers());
+        visit(method.getTypeParameters());
+        visit(method.getReturnTypeExpr());
+        visit(method.getName());
 
-    @Override
-    public String visitMemberReference(MemberReference memberRef) {
-        return fmt(memberRef, visit(memberRef.getContaining()) + "::" +
-                visit(memberRef.getTypeParameters()) + visit(memberRef.getReference()));
+        prefix(method.getParams());
+        append("(");
+        visit(method.getParams().getParams(), ",");
+        suffix(method.getParams());
+        append(")");
+
+        if (method.getThrows() != null) {
+            prefix(method.getThrows());
+            append("throws");
+            visit(method.getThrows().getExceptions(), ",");
+            suffix(method.getThrows());
+        }
+
+        visit(method.getBody());
+
+        if (method.getDefaultValue() != null) {
+            prefix(method.getDefaultValue());
+            append("default");
+            visit(method.getDefaultValue().getValue());
+            suffix(method.getDefaultValue());
+        }
+
+        suffix(method);
+        return null;
     }
 
     @Override
-    public String visitMethod(MethodDecl method) {
-        var modifiers = visitModifiers(method.getModifiers());
-        var params = fmt(method.getParams(), "(" + visit(method.getParams().getParams(), ",")) + ")";
-        var defaultValue = method.getDefaultValue() == null ? "" :
-                fmt(method.getDefaultValue(), "default" + visit(method.getDefaultValue().getValue()));
-        var thrown = method.getThrows() == null ? "" :
-                fmt(method.getThrows(), "throws" + visit(method.getThrows().getExceptions(), ","));
+    public Void visitMethodInvocation(MethodInvocation method) {
+        prefix(method);
+        if (method.getSelect() != null) {
+            visit(method.getSelect());
+            append(".");
+        }
+
+        if (method.getTypeParameters() != null) {
+            prefix(method.getTypeParameters());
+            append("<");
+            visit(method.getTypeParameters().getParams(), ",");
+            append(">");
+            suffix(method.getTypeParameters());
+        }
+
+        visit(method.getName());
 
-        return fmt(method, visit(method.getAnnotations()) + modifiers + visit(method.getTypeParameters()) +
-                visit(method.getReturnTypeExpr()) + visit(method.getName()) + params +
-                thrown + visit(method.getBody()) + defaultValue);
+        prefix(method.getArgs());
+        append("(");
+        visit(method.getArgs().getArgs(), ",");
+        append(")");
+        suffix(method.getArgs());
+
+        suffix(method);
+        return null;
     }
 
     @Override
-    public String visitMethodInvocation(MethodInvocation method) {
-        var args = fmt(method.getArgs(), "(" + visit(method.getArgs().getArgs(), ",") + ")");
-        var typeParams = method.getTypeParameters() == null ? "" :
-                fmt(method.getTypeParameters(), "<" + visit(method.getTypeParameters().getParams(), ",") + ">");
-        var selectSeparator = method.getSelect() == null ? "" : ".";
-        return fmt(method, visit(method.getSelect()) + selectSeparator + typeParams + visit(method.getName()) + args);
+    public Void visitMultiCatch(MultiCatch multiCatch) {
+        prefix(multiCatch);
+        visit(multiCatch.getAlternatives(), "|");
+        suffix(multiCatch);
+        return null;
     }
 
     @Override
-    public String visitMultiCatch(MultiCatch multiCatch) {
-        return fmt(multiCatch, visit(multiCatch.getAlternatives(), "|"));
+    public Void visitMultiVariable(VariableDecls multiVariable) {
+        prefix(multiVariable);
+        visit(multiVariable.getAnnotations());
+        visitModifiers(multiVariable.getModifiers());
+        visit(multiVariable.getTypeExpr());
+        visitDims(multiVariable.getDimensionsBeforeName());
+        fmt(multiVariable.getVarargs(), "...");
+        visit(multiVariable.getVars(), ",");
+        suffix(multiVariable);
+        return null;
     }
 
     @Override
-    public String visitMultiVariable(VariableDecls multiVariable) {
-        var modifiers = visitModifiers(multiVariable.getModifiers());
-        var varargs = multiVariable.getVarargs() == null ? "" :
-                fmt(multiVariable.getVarargs(), "...");
+    public Void visitNewArray(NewArray newArray) {
+        prefix(newArray);
+        if (newArray.getTypeExpr() != null) {
+            append("new");
+            visit(newArray.getTypeExpr());
+        }
 
-        return fmt(multiVariable, visit(multiVariable.getAnnotations()) + modifiers +
-                visit(multiVariable.getTypeExpr()) + visitDims(multiVariable.getDimensionsBeforeName()) +
-                varargs + visit(multiVariable.getVars(), ","));
-    }
+        for (NewArray.Dimension d : newArray.getDimensions()) {
+            prefix(d);
+            append("[");
+            visit(d.getSize());
+            append("]");
+            suffix(d);
+        }
 
-    @Override
-    public String visitNewArray(NewArray newArray) {
-        var typeExpr = newArray.getTypeExpr() == null ? "" :
-                "new" + visit(newArray.getTypeExpr());
-        var dimensions = newArray.getDimensions().stream()
-                .map(d -> fmt(d, "[" + visit(d.getSize()) + "]"))
-                .reduce("", this::reduce);
-        var init = newArray.getInitializer() == null ? "" :
-                fmt(newArray.getInitializer(), "{" + visit(newArray.getInitializer().getElements(), ",") + "}");
+        if (newArray.getInitializer() != null) {
+            prefix(newArray.getInitializer());
+            append("{");
+            visit(newArray.getInitializer().getElements(), ",");
+            append("}");
+            suffix(newArray.getInitializer());
+        }
 
-        return fmt(newArray, typeExpr + dimensions + init);
+        suffix(newArray);
+        return null;
     }
 
     @Override
-    public String visitNewClass(NewClass newClass) {
-        var args = fmt(newClass.getArgs(), "(" + visit(newClass.getArgs().getArgs(), ",") + ")");
-        return fmt(newClass, "new" + visit(newClass.getClazz()) + args + visit(newClass.getBody()));
+    public Void visitNewClass(NewClass newClass) {
+        prefix(newClass);
+        append("new");
+        visit(newClass.getClazz());
+        prefix(newClass.getArgs());
+        append("(");
+        visit(newClass.getArgs().getArgs(), ",");
+        append(")");
+        suffix(newClass.getArgs());
+        visit(newClass.getBody());
+        suffix(newClass);
+        return null;
     }
 
     @Override
-    public String visitPackage(Tr.Package pkg) {
-        return fmt(pkg, "package" + visit(pkg.getExpr()));
+    public Void visitPackage(Tr.Package pkg) {
+        prefix(pkg);
+        append("package");
+        visit(pkg.getExpr());
+        suffix(pkg);
+        return null;
     }
 
     @Override
-    public String visitParameterizedType(ParameterizedType type) {
-        return fmt(type, visit(type.getClazz()) + visit(type.getTypeParameters()));
+    public Void visitParameterizedType(ParameterizedType type) {
+        prefix(type);
+        visit(type.getClazz());
+        visit(type.getTypeParameters());
+        suffix(type);
+        return null;
     }
 
     @Override
-    public String visitPrimitive(Primitive primitive) {
+    public Void visitPrimitive(Primitive primitive) {
         String keyword;
         switch (primitive.getType()) {
             case Boolean:
@@ -469,114 +777,194 @@ public class PrintVisitor extends AstVisitor<String> {
                 throw new IllegalStateException("Unable to print non-primitive type");
         }
 
-        return fmt(primitive, keyword);
+        fmt(primitive, keyword);
+        return null;
     }
 
     @Override
-    public <T extends Tree> String visitParentheses(Parentheses<T> parens) {
-        return fmt(parens, "(" + visit(parens.getTree()) + ")");
+    public <T extends Tree> Void visitParentheses(Parentheses<T> parens) {
+        prefix(parens);
+        append("(");
+        visit(parens.getTree());
+        append(")");
+        suffix(parens);
+        return null;
     }
 
     @Override
-    public String visitReturn(Return retrn) {
-        return fmt(retrn, "return" + visit(retrn.getExpr()));
+    public Void visitReturn(Return retrn) {
+        prefix(retrn);
+        append("return");
+        visit(retrn.getExpr());
+        suffix(retrn);
+        return null;
     }
 
     @Override
-    public String visitSwitch(Switch switzh) {
-        return fmt(switzh, "switch" + visit(switzh.getSelector()) + visit(switzh.getCases()));
+    public Void visitSwitch(Switch switzh) {
+        prefix(switzh);
+        append("switch");
+        visit(switzh.getSelector());
+        visit(switzh.getCases());
+        suffix(switzh);
+        return null;
     }
 
     @Override
-    public String visitSynchronized(Tr.Synchronized synch) {
-        return fmt(synch, "synchronized" + visit(synch.getLock()) + visit(synch.getBody()));
+    public Void visitSynchronized(Tr.Synchronized synch) {
+        prefix(synch);
+        append("synchronized");
+        visit(synch.getLock());
+        visit(synch.getBody());
+        suffix(synch);
+        return null;
     }
 
     @Override
-    public String visitTernary(Ternary ternary) {
-        return fmt(ternary, visit(ternary.getCondition()) + "?" + visit(ternary.getTruePart()) + ":" +
-                visit(ternary.getFalsePart()));
+    public Void visitTernary(Ternary ternary) {
+        prefix(ternary);
+        visit(ternary.getCondition());
+        append("?");
+        visit(ternary.getTruePart());
+        append(":");
+        visit(ternary.getFalsePart());
+        suffix(ternary);
+        return null;
     }
 
     @Override
-    public String visitThrow(Throw thrown) {
-        return fmt(thrown, "throw" + visit(thrown.getException()));
+    public Void visitThrow(Throw thrown) {
+        prefix(thrown);
+        append("throw");
+        visit(thrown.getException());
+        suffix(thrown);
+        return null;
     }
 
     @Override
-    public String visitTry(Try tryable) {
-        var resources = tryable.getResources() == null ? "" :
-                fmt(tryable.getResources(), "(" + visit(tryable.getResources().getDecls(), ";") + ")");
-
-        return fmt(tryable, "try" + resources + visit(tryable.getBody()) + visit(tryable.getCatches()) + visit(tryable.getFinally()));
+    public Void visitTry(Try tryable) {
+        prefix(tryable);
+        append("try");
+        if (tryable.getResources() != null) {
+            prefix(tryable.getResources());
+            append("(");
+            visit(tryable.getResources().getDecls(), ";");
+            append(")");
+            suffix(tryable.getResources());
+        }
+        visit(tryable.getBody());
+        visit(tryable.getCatches());
+        visit(tryable.getFinally());
+        suffix(tryable);
+        return null;
     }
 
     @Override
-    public String visitTypeCast(TypeCast typeCast) {
-        return fmt(typeCast, visit(typeCast.getClazz()) + visit(typeCast.getExpr()));
+    public Void visitTypeCast(TypeCast typeCast) {
+        prefix(typeCast);
+        visit(typeCast.getClazz());
+        visit(typeCast.getExpr());
+        suffix(typeCast);
+        return null;
     }
 
     @Override
-    public String visitTypeParameters(TypeParameters typeParams) {
-        return fmt(typeParams, "<" + visit(typeParams.getParams(), ",", "") + ">");
+    public Void visitTypeParameters(TypeParameters typeParams) {
+        prefix(typeParams);
+        append("<");
+        visit(typeParams.getParams(), ",", "");
+        append(">");
+        suffix(typeParams);
+        return null;
     }
 
     @Override
-    public String visitTypeParameter(TypeParameter typeParam) {
-        var bounds = typeParam.getBounds() == null ? "" :
-                fmt(typeParam.getBounds(), "extends" + visit(typeParam.getBounds().getTypes(), "&"));
-        return fmt(typeParam, visit(typeParam.getAnnotations(), "") + visit(typeParam.getName()) + bounds);
+    public Void visitTypeParameter(TypeParameter typeParam) {
+        prefix(typeParam);
+        visit(typeParam.getAnnotations(), "");
+        visit(typeParam.getName());
+        if (typeParam.getBounds() != null) {
+            prefix(typeParam.getBounds());
+            append("extends");
+            visit(typeParam.getBounds().getTypes(), "&");
+            suffix(typeParam.getBounds());
+        }
+        suffix(typeParam);
+        return null;
     }
 
     @Override
-    public String visitUnary(Unary unary) {
-        String code = "";
+    public Void visitUnary(Unary unary) {
+        prefix(unary);
         if (unary.getOperator() instanceof Tr.Unary.Operator.PreIncrement) {
-            code = "++" + visit(unary.getExpr());
+            append("++");
+            visit(unary.getExpr());
         } else if (unary.getOperator() instanceof Tr.Unary.Operator.PreDecrement) {
-            code = "--" + visit(unary.getExpr());
+            append("--");
+            visit(unary.getExpr());
         } else if (unary.getOperator() instanceof Tr.Unary.Operator.PostIncrement) {
-            code = visit(unary.getExpr()) + fmt(unary.getOperator(), "++");
+            visit(unary.getExpr());
+            fmt(unary.getOperator(), "++");
         } else if (unary.getOperator() instanceof Tr.Unary.Operator.PostDecrement) {
-            code = visit(unary.getExpr()) + fmt(unary.getOperator(), "--");
+            visit(unary.getExpr());
+            fmt(unary.getOperator(), "--");
         } else if (unary.getOperator() instanceof Tr.Unary.Operator.Positive) {
-            code = "+" + visit(unary.getExpr());
+            append("+");
+            visit(unary.getExpr());
         } else if (unary.getOperator() instanceof Tr.Unary.Operator.Negative) {
-            code = "-" + visit(unary.getExpr());
+            append("-");
+            visit(unary.getExpr());
         } else if (unary.getOperator() instanceof Tr.Unary.Operator.Complement) {
-            code = "~" + visit(unary.getExpr());
+            append("~");
+            visit(unary.getExpr());
         } else if (unary.getOperator() instanceof Tr.Unary.Operator.Not) {
-            code = "!" + visit(unary.getExpr());
+            append("!");
+            visit(unary.getExpr());
         }
-
-        return fmt(unary, code);
+        suffix(unary);
+        return null;
     }
 
     @Override
-    public String visitUnparsedSource(UnparsedSource unparsed) {
-        return fmt(unparsed, unparsed.getSource());
+    public Void visitUnparsedSource(UnparsedSource unparsed) {
+        fmt(unparsed, unparsed.getSource());
+        return null;
     }
 
     @Override
-    public String visitVariable(VariableDecls.NamedVar variable) {
-        var init = variable.getInitializer() == null ? "" :
-                "=" + visit(variable.getInitializer());
-        return fmt(variable, visit(variable.getName()) + visitDims(variable.getDimensionsAfterName()) + init);
+    public Void visitVariable(VariableDecls.NamedVar variable) {
+        prefix(variable);
+        visit(variable.getName());
+        visitDims(variable.getDimensionsAfterName());
+        if (variable.getInitializer() != null) {
+            append("=");
+            visit(variable.getInitializer());
+        }
+        suffix(variable);
+        return null;
     }
 
     @Override
-    public String visitWhileLoop(WhileLoop whileLoop) {
-        return fmt(whileLoop, "while" + visit(whileLoop.getCondition()) + fmtStatement(whileLoop.getBody()));
+    public Void visitWhileLoop(WhileLoop whileLoop) {
+        prefix(whileLoop);
+        append("while");
+        visit(whileLoop.getCondition());
+        fmtStatement(whileLoop.getBody());
+        suffix(whileLoop);
+        return null;
     }
 
     @Override
-    public String visitWildcard(Wildcard wildcard) {
-        var bound = "";
+    public Void visitWildcard(Wildcard wildcard) {
+        prefix(wildcard);
+        append("?");
         if (wildcard.getBound() instanceof Wildcard.Bound.Extends) {
-            bound = fmt(wildcard.getBound(), "extends");
+            fmt(wildcard.getBound(), "extends");
         } else if (wildcard.getBound() instanceof Wildcard.Bound.Super) {
-            bound = fmt(wildcard.getBound(), "super");
+            fmt(wildcard.getBound(), "super");
         }
-        return fmt(wildcard, "?" + bound + visit(wildcard.getBoundedType()));
+        visit(wildcard.getBoundedType());
+        suffix(wildcard);
+        return null;
     }
 }
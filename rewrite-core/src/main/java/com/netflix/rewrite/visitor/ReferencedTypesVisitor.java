@@ -16,28 +16,20 @@
 package com.netflix.rewrite.visitor;
 
 import com.netflix.rewrite.tree.NameTree;
-import com.netflix.rewrite.tree.Tree;
 import com.netflix.rewrite.tree.Type;
 import com.netflix.rewrite.tree.TypeUtils;
 
 import java.util.HashSet;
 import java.util.Set;
 
-import static java.util.Collections.emptySet;
-
-public class ReferencedTypesVisitor extends AstVisitor<Set<Type.Class>> {
-    @Override
-    public Set<Type.Class> defaultTo(Tree t) {
-        return emptySet();
+public class ReferencedTypesVisitor extends CollectingVisitor<Type.Class, Set<Type.Class>> {
+    public ReferencedTypesVisitor() {
+        super(HashSet::new);
     }
 
     @Override
     public Set<Type.Class> visitTypeName(NameTree name) {
-        Set<Type.Class> referenced = new HashSet<>(super.visitTypeName(name));
         Type.Class asClass = TypeUtils.asClass(name.getType());
-        if (asClass != null) {
-            referenced.add(asClass);
-        }
-        return referenced;
+        return asClass == null ? super.visitTypeName(name) : collect(asClass);
     }
 }
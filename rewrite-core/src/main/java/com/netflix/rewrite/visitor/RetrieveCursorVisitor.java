@@ -19,11 +19,9 @@ import com.netflix.rewrite.tree.Cursor;
 import com.netflix.rewrite.tree.Tree;
 import lombok.AllArgsConstructor;
 
-import java.util.UUID;
-
 @AllArgsConstructor
 public class RetrieveCursorVisitor extends CursorAstVisitor<Cursor> {
-    private final UUID treeId;
+    private final long treeId;
 
     @Override
     public Cursor defaultTo(Tree t) {
@@ -32,6 +30,6 @@ public class RetrieveCursorVisitor extends CursorAstVisitor<Cursor> {
 
     @Override
     public Cursor visitTree(Tree tree) {
-        return tree.getId().equals(treeId) ? getCursor() : super.visitTree(tree);
+        return tree.getId() == treeId ? getCursor() : super.visitTree(tree);
     }
 }
@@ -18,13 +18,11 @@ package com.netflix.rewrite.visitor;
 import com.netflix.rewrite.internal.lang.Nullable;
 import com.netflix.rewrite.tree.Tree;
 
-import java.util.UUID;
-
 public class RetrieveTreeVisitor extends AstVisitor<Tree> {
     @Nullable
-    private final UUID treeId;
+    private final Long treeId;
 
-    public RetrieveTreeVisitor(@Nullable UUID treeId) {
+    public RetrieveTreeVisitor(@Nullable Long treeId) {
         this.treeId = treeId;
     }
 
@@ -35,6 +33,6 @@ public class RetrieveTreeVisitor extends AstVisitor<Tree> {
 
     @Override
     public Tree visitTree(Tree tree) {
-        return tree.getId().equals(treeId) ? tree : super.visitTree(tree);
+        return treeId != null && tree.getId() == treeId ? tree : super.visitTree(tree);
     }
 }
@@ -15,17 +15,34 @@
  */
 package com.netflix.rewrite.visitor.refactor;
 
+import com.netflix.rewrite.internal.lang.Nullable;
 import com.netflix.rewrite.tree.Cursor;
 import com.netflix.rewrite.tree.Tree;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
-import java.util.UUID;
 import java.util.function.BiFunction;
 
 @Data
+@AllArgsConstructor
 public class AstTransform {
-    private final UUID id;
+    private final long id;
     private final String name;
     private final Class<Tree> treeType;
     private final BiFunction<Tree, Cursor, Tree> mutation;
+
+    /**
+     * Where the visitor that emitted this transformation was in the tree at the time, which is either at the target,
+     * below it, or above it. Lets {@link TransformVisitor} descend only along the paths leading to targets.
+     */
+    @Nullable
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final Cursor cursor;
+
+    public AstTransform(long id, String name, Class<Tree> treeType, BiFunction<Tree, Cursor, Tree> mutation) {
+        this(id, name, treeType, mutation, null);
+    }
 }
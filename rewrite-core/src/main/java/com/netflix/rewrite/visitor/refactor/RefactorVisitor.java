@@ -164,24 +164,32 @@ public abstract class RefactorVisitor extends CursorAstVisitor<List<AstTransform
         return false;
     }
 
+    /**
+     * Determines whether this visitor never makes further changes to a compilation unit it has just changed, so
+     * that it needn't be run again unless some other visitor changes the compilation unit.
+     */
+    public boolean isIdempotent() {
+        return false;
+    }
+
     @SuppressWarnings("unchecked")
     protected <U extends Tree> List<AstTransform> transform(U target, BiFunction<U, Cursor, U> mutation) {
         List<AstTransform> changes = new ArrayList<>(1);
-        changes.add(new AstTransform(target.getId(), getRuleName(), (Class<Tree>) target.getClass(), (t, c) -> mutation.apply((U) t, c)));
+        changes.add(new AstTransform(target.getId(), getRuleName(), (Class<Tree>) target.getClass(), (t, c) -> mutation.apply((U) t, c), getCursor()));
         return changes;
     }
 
     @SuppressWarnings("unchecked")
     protected <T extends Tree, U extends T> List<AstTransform> transform(Class<T> widenTo, U target, BiFunction<U, Cursor, T> mutation) {
         List<AstTransform> changes = new ArrayList<>(1);
-        changes.add(new AstTransform(target.getId(), getRuleName(), (Class<Tree>) widenTo, (t, c) -> mutation.apply((U) t, c)));
+        changes.add(new AstTransform(target.getId(), getRuleName(), (Class<Tree>) widenTo, (t, c) -> mutation.apply((U) t, c), getCursor()));
         return changes;
     }
 
     @SuppressWarnings("unchecked")
     protected <U extends Tree> List<AstTransform> transform(U target, Function<U, U> mutation) {
         List<AstTransform> changes = new ArrayList<>(1);
-        changes.add(new AstTransform(target.getId(), getRuleName(), (Class<Tree>) target.getClass(), (t, c) -> mutation.apply(((U) t))));
+        changes.add(new AstTransform(target.getId(), getRuleName(), (Class<Tree>) target.getClass(), (t, c) -> mutation.apply(((U) t)), getCursor()));
         return changes;
     }
 }
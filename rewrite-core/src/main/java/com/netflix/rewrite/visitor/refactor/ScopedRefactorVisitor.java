@@ -22,7 +22,6 @@ import lombok.RequiredArgsConstructor;
 
 import java.util.List;
 import java.util.Spliterators;
-import java.util.UUID;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -30,34 +29,34 @@ import static java.util.stream.StreamSupport.stream;
 
 @RequiredArgsConstructor
 public abstract class ScopedRefactorVisitor extends RefactorVisitor {
-    protected final UUID scope;
+    protected final long scope;
 
     protected boolean isScope(@Nullable Tree t) {
-        return t != null && scope.equals(t.getId());
+        return t != null && scope == t.getId();
     }
 
     protected boolean isInScope(@Nullable Tree t) {
-        return (t != null && t.getId().equals(scope)) ||
+        return (t != null && t.getId() == scope) ||
                 stream(Spliterators.spliteratorUnknownSize(getCursor().getPath(), 0), false)
-                    .anyMatch(p -> p.getId().equals(scope));
+                    .anyMatch(p -> p.getId() == scope);
     }
 
     protected <T extends Tree> List<AstTransform> transformIfScoped(T tree,
                                                                     Function<T, List<AstTransform>> callSuper,
                                                                     Function<T, T> mutation) {
-        return maybeTransform(tree, tree.getId().equals(scope), callSuper, mutation);
+        return maybeTransform(tree, tree.getId() == scope, callSuper, mutation);
     }
 
     protected <T extends Tree, U extends Tree> List<AstTransform> transformIfScoped(T tree,
                                                                                     Function<T, List<AstTransform>> callSuper,
                                                                                     Function<T, U> transformNestedElement,
                                                                                     Function<U, U> mutation) {
-        return maybeTransform(tree, tree.getId().equals(scope), callSuper, transformNestedElement, mutation);
+        return maybeTransform(tree, tree.getId() == scope, callSuper, transformNestedElement, mutation);
     }
 
     protected <T extends Tree> List<AstTransform> transformIfScoped(T tree,
                                                                     Function<T, List<AstTransform>> callSuper,
                                                                     BiFunction<T, Cursor, T> mutation) {
-        return maybeTransform(tree, tree.getId().equals(scope), callSuper, mutation);
+        return maybeTransform(tree, tree.getId() == scope, callSuper, mutation);
     }
 }
@@ -21,7 +21,6 @@ import com.netflix.rewrite.tree.Tree;
 import lombok.RequiredArgsConstructor;
 
 import java.util.List;
-import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -30,7 +29,7 @@ import static java.util.stream.IntStream.range;
 public class ShiftFormatRightVisitor extends ScopedRefactorVisitor {
     private final String shift;
 
-    public ShiftFormatRightVisitor(UUID scope, int shift, boolean isIndentedWithSpaces) {
+    public ShiftFormatRightVisitor(long scope, int shift, boolean isIndentedWithSpaces) {
         super(scope);
         this.shift = range(0, shift)
                 .mapToObj(n -> isIndentedWithSpaces ? " " : "\t")
@@ -15,34 +15,143 @@
  */
 package com.netflix.rewrite.visitor.refactor;
 
+import com.koloboke.collect.map.LongObjMap;
+import com.koloboke.collect.map.hash.HashLongObjMaps;
+import com.koloboke.collect.set.LongSet;
+import com.koloboke.collect.set.hash.HashLongSets;
+import com.netflix.rewrite.tree.Cursor;
 import com.netflix.rewrite.tree.Tr;
 import com.netflix.rewrite.tree.Tr.*;
 import com.netflix.rewrite.tree.Tree;
 import com.netflix.rewrite.visitor.CursorAstVisitor;
 import lombok.Data;
-import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.StreamSupport.stream;
 
-@RequiredArgsConstructor
 public class TransformVisitor extends CursorAstVisitor<Tree> {
     private static final Logger logger = LoggerFactory.getLogger(TransformVisitor.class);
 
-    private final Iterable<AstTransform> transformations;
+    /**
+     * Transformations in the order they were given, indexed by the id of the tree element they target.
+     */
+    private final LongObjMap<List<AstTransform>> transformationsById = HashLongObjMaps.newMutableMap();
+
+    /**
+     * Ids of the tree elements on the paths leading to targets. Subtrees rooted anywhere else have nothing to
+     * transform and are not visited.
+     */
+    private LongSet targetPathIds = HashLongSets.newMutableSet();
+
+    /**
+     * Ids of the tree elements whose whole subtree is visited, because a target lies somewhere below them.
+     */
+    private final LongSet unprunedIds = HashLongSets.newMutableSet();
+
+    private int unprunedDepth = 0;
+
+    private final LongSet reachedIds = HashLongSets.newMutableSet();
+
+    public TransformVisitor(Iterable<AstTransform> transformations) {
+        for (AstTransform transformation : transformations) {
+            List<AstTransform> targeting = transformationsById.get(transformation.getId());
+            if (targeting == null) {
+                targeting = new ArrayList<>();
+                transformationsById.put(transformation.getId(), targeting);
+            }
+            targeting.add(transformation);
+        }
+    }
 
     @Override
     public Tree defaultTo(Tree t) {
         return t;
     }
 
+    @Override
+    public Tree visit(Tree tree) {
+        if (tree == null || transformationsById.isEmpty()) {
+            return tree;
+        }
+
+        if (getCursor() == null) {
+            return visitRoot(tree);
+        }
+
+        if (unprunedDepth > 0) {
+            return super.visit(tree);
+        }
+
+        if (unprunedIds.contains(tree.getId())) {
+            unprunedDepth++;
+            try {
+                return super.visit(tree);
+            } finally {
+                unprunedDepth--;
+            }
+        }
+
+        return targetPathIds.contains(tree.getId()) ? super.visit(tree) : tree;
+    }
+
+    /**
+     * Descends along the paths recorded by the visitors that emitted the transformations when possible. Otherwise,
+     * or if a transformation isn't reached along its recorded path, a walk of the whole tree finds the paths to targets.
+     */
+    private Tree visitRoot(Tree root) {
+        if (recordedPaths(root)) {
+            reachedIds.clear();
+            Tree transformed = super.visit(root);
+            if (reachedIds.size() == transformationsById.size()) {
+                return transformed;
+            }
+            logger.debug("Not every transformation was reached along its recorded path, searching the whole tree instead");
+        }
+
+        unprunedIds.clear();
+        targetPathIds = new TargetPaths().collect(root);
+        return targetPathIds.contains(root.getId()) ? super.visit(root) : root;
+    }
+
+    private boolean recordedPaths(Tree root) {
+        targetPathIds = HashLongSets.newMutableSet();
+        unprunedIds.clear();
+
+        for (List<AstTransform> targeting : transformationsById.values()) {
+            for (AstTransform transformation : targeting) {
+                if (transformation.getCursor() == null) {
+                    return false;
+                }
+
+                boolean targetOnPath = false;
+                Tree top = null;
+                for (Cursor c = transformation.getCursor(); c != null; c = c.getParent()) {
+                    top = c.getTree();
+                    targetPathIds.add(top.getId());
+                    targetOnPath |= top.getId() == transformation.getId();
+                }
+
+                if (top != root) {
+                    return false;
+                }
+
+                if (!targetOnPath) {
+                    // the target is a nested element of the tree the visitor was on
+                    unprunedIds.add(transformation.getCursor().getTree().getId());
+                }
+            }
+        }
+
+        return true;
+    }
+
     @Override
     public Tree visitAnnotation(Annotation annotation) {
         return transform(annotation,
@@ -459,13 +568,18 @@ public class TransformVisitor extends CursorAstVisitor<Tree> {
      * which nested levels we should attempt transformations on as well.
      */
     private Tree transformShallow(Tree tree) {
-        List<AstTransform> filteredTransforms = stream(transformations.spliterator(), false)
-                .filter(t -> t.getId().equals(getCursor().getTree().getId()))
-                .filter(t -> t.getTreeType().isInstance(tree))
-                .collect(toList());
+        List<AstTransform> targeting = transformationsById.get(getCursor().getTree().getId());
+        if (targeting == null) {
+            return tree;
+        }
+        reachedIds.add(getCursor().getTree().getId());
 
         Tree mutation = tree;
-        for (AstTransform trans : filteredTransforms) {
+        for (AstTransform trans : targeting) {
+            if (!trans.getTreeType().isInstance(tree)) {
+                continue;
+            }
+
             if (logger.isDebugEnabled()) {
                 logger.debug("Transforming " + mutation.getClass().getSimpleName() + " with " + trans.getName());
                 logger.debug("Original: ");
@@ -497,4 +611,26 @@ public class TransformVisitor extends CursorAstVisitor<Tree> {
                 .collect(toList());
         return changed.get() ? mapped : ts;
     }
+
+    private class TargetPaths extends CursorAstVisitor<Void> {
+        private final LongSet ids = HashLongSets.newMutableSet();
+
+        LongSet collect(Tree root) {
+            visit(root);
+            return ids;
+        }
+
+        @Override
+        public Void defaultTo(Tree t) {
+            return null;
+        }
+
+        @Override
+        public Void visitTree(Tree tree) {
+            if (transformationsById.containsKey(tree.getId())) {
+                getCursor().getPathAsStream().forEach(t -> ids.add(t.getId()));
+            }
+            return super.visitTree(tree);
+        }
+    }
 }
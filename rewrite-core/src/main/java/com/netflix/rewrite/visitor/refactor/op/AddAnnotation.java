@@ -21,7 +21,6 @@ import com.netflix.rewrite.visitor.refactor.ScopedRefactorVisitor;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 import static com.netflix.rewrite.tree.Formatting.*;
 import static com.netflix.rewrite.tree.Formatting.formatFirstPrefix;
@@ -30,7 +29,7 @@ import static com.netflix.rewrite.tree.Tr.randomId;
 public class AddAnnotation extends ScopedRefactorVisitor {
     private final Type.Class annotationType;
 
-    public AddAnnotation(UUID scope, String annotationTypeName) {
+    public AddAnnotation(long scope, String annotationTypeName) {
         super(scope);
         this.annotationType = Type.Class.build(annotationTypeName);
     }
@@ -26,7 +26,6 @@ import org.slf4j.helpers.MessageFormatter;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 import static com.netflix.rewrite.tree.Tr.randomId;
 import static java.util.Collections.emptyList;
@@ -40,7 +39,7 @@ public class AddField extends ScopedRefactorVisitor {
     @Nullable
     private final String init;
 
-    public AddField(UUID scope, List<Tr.Modifier> modifiers, String clazz, String name, @Nullable String init) {
+    public AddField(long scope, List<Tr.Modifier> modifiers, String clazz, String name, @Nullable String init) {
         super(scope);
         this.modifiers = modifiers;
         this.clazz = clazz;
@@ -57,7 +56,7 @@ public class AddField extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitClassDecl(Tr.ClassDecl classDecl) {
         return maybeTransform(classDecl,
-                classDecl.getId().equals(scope) && classDecl.getBody().getStatements()
+                classDecl.getId() == scope && classDecl.getBody().getStatements()
                         .stream()
                         .filter(s -> s instanceof Tr.VariableDecls)
                         .map(Tr.VariableDecls.class::cast)
@@ -22,14 +22,13 @@ import com.netflix.rewrite.visitor.refactor.AstTransform;
 import com.netflix.rewrite.visitor.refactor.ScopedRefactorVisitor;
 
 import java.util.List;
-import java.util.UUID;
 
 import static java.util.stream.Collectors.toList;
 
 public class ChangeFieldType extends ScopedRefactorVisitor {
     private final String targetType;
 
-    public ChangeFieldType(UUID scope, String targetType) {
+    public ChangeFieldType(long scope, String targetType) {
         super(scope);
         this.targetType = targetType;
     }
@@ -44,7 +43,7 @@ public class ChangeFieldType extends ScopedRefactorVisitor {
         Type.Class originalType = multiVariable.getTypeAsClass();
 
         return maybeTransform(multiVariable,
-                multiVariable.getId().equals(scope) &&
+                multiVariable.getId() == scope &&
                         originalType != null &&
                         !originalType.getFullyQualifiedName().equals(targetType),
                 super::visitMultiVariable,
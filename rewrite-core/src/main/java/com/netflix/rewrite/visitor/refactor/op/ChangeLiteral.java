@@ -23,7 +23,6 @@ import com.netflix.rewrite.visitor.refactor.ScopedRefactorVisitor;
 import org.apache.commons.lang.StringEscapeUtils;
 
 import java.util.List;
-import java.util.UUID;
 import java.util.function.Function;
 
 import static java.util.Collections.emptyList;
@@ -31,7 +30,7 @@ import static java.util.Collections.emptyList;
 public class ChangeLiteral extends ScopedRefactorVisitor {
     private final Function<Object, Object> transform;
 
-    public ChangeLiteral(UUID scope, Function<Object, Object> transform) {
+    public ChangeLiteral(long scope, Function<Object, Object> transform) {
         super(scope);
         this.transform = transform;
     }
@@ -20,12 +20,11 @@ import com.netflix.rewrite.visitor.refactor.AstTransform;
 import com.netflix.rewrite.visitor.refactor.ScopedRefactorVisitor;
 
 import java.util.List;
-import java.util.UUID;
 
 public class ChangeMethodName extends ScopedRefactorVisitor {
     private final String name;
 
-    public ChangeMethodName(UUID scope, String name) {
+    public ChangeMethodName(long scope, String name) {
         super(scope);
         this.name = name;
     }
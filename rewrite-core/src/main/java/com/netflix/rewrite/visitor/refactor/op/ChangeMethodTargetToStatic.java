@@ -24,7 +24,6 @@ import com.netflix.rewrite.visitor.refactor.ScopedRefactorVisitor;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.UUID;
 
 import static com.netflix.rewrite.tree.Formatting.EMPTY;
 import static com.netflix.rewrite.tree.Tr.randomId;
@@ -32,7 +31,7 @@ import static com.netflix.rewrite.tree.Tr.randomId;
 public class ChangeMethodTargetToStatic extends ScopedRefactorVisitor {
     private final String clazz;
 
-    public ChangeMethodTargetToStatic(UUID scope, String clazz) {
+    public ChangeMethodTargetToStatic(long scope, String clazz) {
         super(scope);
         this.clazz = clazz;
     }
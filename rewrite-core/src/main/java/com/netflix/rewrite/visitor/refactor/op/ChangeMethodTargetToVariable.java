@@ -23,7 +23,6 @@ import com.netflix.rewrite.visitor.refactor.ScopedRefactorVisitor;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.UUID;
 
 import static com.netflix.rewrite.tree.Tr.randomId;
 
@@ -33,7 +32,7 @@ public class ChangeMethodTargetToVariable extends ScopedRefactorVisitor {
     @Nullable
     private final Type.Class type;
 
-    public ChangeMethodTargetToVariable(UUID scope, String varName, @Nullable Type.Class type) {
+    public ChangeMethodTargetToVariable(long scope, String varName, @Nullable Type.Class type) {
         super(scope);
         this.varName = varName;
         this.type = type;
@@ -47,7 +46,7 @@ public class ChangeMethodTargetToVariable extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitMethodInvocation(Tr.MethodInvocation method) {
         return maybeTransform(method,
-                method.getId().equals(scope),
+                method.getId() == scope,
                 super::visitMethodInvocation,
                 m -> {
                     Expression select = m.getSelect();
@@ -23,7 +23,6 @@ import com.netflix.rewrite.visitor.refactor.ScopedRefactorVisitor;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 import static com.netflix.rewrite.tree.Tr.randomId;
 import static java.util.Collections.singletonList;
@@ -31,7 +30,7 @@ import static java.util.Collections.singletonList;
 public class DeleteMethodArgument extends ScopedRefactorVisitor {
     private final int pos;
 
-    public DeleteMethodArgument(UUID scope, int pos) {
+    public DeleteMethodArgument(long scope, int pos) {
         super(scope);
         this.pos = pos;
     }
@@ -49,7 +48,7 @@ public class DeleteMethodArgument extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitMethodInvocation(Tr.MethodInvocation method) {
         return maybeTransform(method,
-                method.getId().equals(scope) && method.getArgs().getArgs().stream()
+                method.getId() == scope && method.getArgs().getArgs().stream()
                         .filter(arg -> !(arg instanceof Tr.Empty)).count() > pos,
                 super::visitMethodInvocation,
                 m -> {
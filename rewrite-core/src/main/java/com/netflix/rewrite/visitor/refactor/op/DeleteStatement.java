@@ -23,7 +23,6 @@ import com.netflix.rewrite.visitor.refactor.AstTransform;
 import com.netflix.rewrite.visitor.refactor.ScopedRefactorVisitor;
 
 import java.util.List;
-import java.util.UUID;
 
 import static com.netflix.rewrite.tree.Tr.randomId;
 import static java.util.Collections.emptyList;
@@ -33,7 +32,7 @@ import static java.util.stream.Collectors.toList;
  * Deletes standalone statements. Does not include deletion of control statements present in for loops.
  */
 public class DeleteStatement extends ScopedRefactorVisitor {
-    public DeleteStatement(UUID scope) {
+    public DeleteStatement(long scope) {
         super(scope);
     }
 
@@ -45,9 +44,9 @@ public class DeleteStatement extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitIf(Tr.If iff) {
         List<AstTransform> changes = super.visitIf(iff);
-        if (iff.getThenPart().getId().equals(scope)) {
+        if (iff.getThenPart().getId() == scope) {
             changes.addAll(transform(iff, t -> t.withThenPart(emptyBlock())));
-        } else if (iff.getElsePart() != null && iff.getElsePart().getId().equals(scope)) {
+        } else if (iff.getElsePart() != null && iff.getElsePart().getId() == scope) {
             changes.addAll(transform(iff, t ->
                     t.getElsePart() == null ?
                             t :
@@ -60,7 +59,7 @@ public class DeleteStatement extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitForLoop(Tr.ForLoop forLoop) {
         return maybeTransform(forLoop,
-                forLoop.getBody().getId().equals(scope),
+                forLoop.getBody().getId() == scope,
                 super::visitForLoop,
                 t -> t.withBody(emptyBlock())
         );
@@ -69,7 +68,7 @@ public class DeleteStatement extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitForEachLoop(Tr.ForEachLoop forEachLoop) {
         return maybeTransform(forEachLoop,
-                forEachLoop.getBody().getId().equals(scope),
+                forEachLoop.getBody().getId() == scope,
                 super::visitForEachLoop,
                 t -> t.withBody(emptyBlock())
         );
@@ -78,7 +77,7 @@ public class DeleteStatement extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitWhileLoop(Tr.WhileLoop whileLoop) {
         return maybeTransform(whileLoop,
-                whileLoop.getBody().getId().equals(scope),
+                whileLoop.getBody().getId() == scope,
                 super::visitWhileLoop,
                 t -> t.withBody(emptyBlock())
         );
@@ -87,7 +86,7 @@ public class DeleteStatement extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitDoWhileLoop(Tr.DoWhileLoop doWhileLoop) {
         return maybeTransform(doWhileLoop,
-                doWhileLoop.getBody().getId().equals(scope),
+                doWhileLoop.getBody().getId() == scope,
                 super::visitDoWhileLoop,
                 t -> t.withBody(emptyBlock())
         );
@@ -96,17 +95,17 @@ public class DeleteStatement extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitBlock(Tr.Block<Tree> block) {
         return maybeTransform(block,
-                block.getStatements().stream().anyMatch(s -> s.getId().equals(scope)),
+                block.getStatements().stream().anyMatch(s -> s.getId() == scope),
                 super::visitBlock,
                 t -> t.withStatements(t.getStatements().stream()
-                        .filter(s -> !s.getId().equals(scope))
+                        .filter(s -> s.getId() != scope)
                         .collect(toList()))
         );
     }
 
     @Override
     public List<AstTransform> visit(Tree tree) {
-        if (tree != null && tree.getId().equals(scope)) {
+        if (tree != null && tree.getId() == scope) {
             new ReferencedTypesVisitor().visit(tree).forEach(this::maybeRemoveImport);
         }
         return super.visit(tree);
@@ -21,7 +21,6 @@ import com.netflix.rewrite.visitor.refactor.ScopedRefactorVisitor;
 
 import java.util.List;
 import java.util.Set;
-import java.util.UUID;
 
 import static com.netflix.rewrite.tree.Formatting.*;
 import static com.netflix.rewrite.tree.Tr.randomId;
@@ -32,7 +31,7 @@ import static java.util.stream.Collectors.*;
 public class GenerateConstructorUsingFields extends ScopedRefactorVisitor {
     private final List<Tr.VariableDecls> fields;
 
-    public GenerateConstructorUsingFields(UUID scope, List<Tr.VariableDecls> fields) {
+    public GenerateConstructorUsingFields(long scope, List<Tr.VariableDecls> fields) {
         super(scope);
         this.fields = fields;
     }
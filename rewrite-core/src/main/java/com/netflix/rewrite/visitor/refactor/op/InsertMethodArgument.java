@@ -24,7 +24,6 @@ import com.netflix.rewrite.visitor.refactor.ScopedRefactorVisitor;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 import static com.netflix.rewrite.tree.Formatting.format;
@@ -34,7 +33,7 @@ public class InsertMethodArgument extends ScopedRefactorVisitor {
     private final int pos;
     private final String source;
 
-    public InsertMethodArgument(UUID scope, int pos, String source) {
+    public InsertMethodArgument(long scope, int pos, String source) {
         super(scope);
         this.pos = pos;
         this.source = source;
@@ -53,7 +52,7 @@ public class InsertMethodArgument extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitMethodInvocation(Tr.MethodInvocation method) {
         return maybeTransform(method,
-                method.getId().equals(scope),
+                method.getId() == scope,
                 super::visitMethodInvocation,
                 m -> {
                     List<Expression> modifiedArgs = m.getArgs().getArgs().stream()
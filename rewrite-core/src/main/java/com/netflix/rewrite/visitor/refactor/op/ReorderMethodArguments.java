@@ -24,13 +24,12 @@ import com.netflix.rewrite.visitor.refactor.ScopedRefactorVisitor;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
 
 public class ReorderMethodArguments extends ScopedRefactorVisitor {
     private final String[] byArgumentNames;
     private String[] originalParamNames;
 
-    public ReorderMethodArguments(UUID scope, String[] byArgumentNames) {
+    public ReorderMethodArguments(long scope, String[] byArgumentNames) {
         super(scope);
         this.byArgumentNames = byArgumentNames;
         this.originalParamNames = new String[0];
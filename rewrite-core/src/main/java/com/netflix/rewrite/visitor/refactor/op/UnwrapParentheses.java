@@ -21,7 +21,6 @@ import com.netflix.rewrite.visitor.refactor.AstTransform;
 import com.netflix.rewrite.visitor.refactor.ScopedRefactorVisitor;
 
 import java.util.List;
-import java.util.UUID;
 import java.util.function.Function;
 
 import static java.util.stream.Collectors.toList;
@@ -31,7 +30,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
             ((Tr.Parentheses<?>) p).getTree().withFormatting(p.getFormatting()) :
             p;
 
-    public UnwrapParentheses(UUID scope) {
+    public UnwrapParentheses(long scope) {
         super(scope);
     }
 
@@ -43,12 +42,12 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitArrayAccess(Tr.ArrayAccess arrayAccess) {
         List<AstTransform> changes = maybeTransform(arrayAccess,
-                scope.equals(arrayAccess.getIndexed().getId()),
+                scope == arrayAccess.getIndexed().getId(),
                 super::visitArrayAccess,
                 Tr.ArrayAccess::getIndexed,
                 UNWRAP_PARENS);
 
-        if (scope.equals(arrayAccess.getDimension().getIndex().getId())) {
+        if (scope == arrayAccess.getDimension().getIndex().getId()) {
             changes.addAll(transform(arrayAccess.getDimension().getIndex(), UNWRAP_PARENS));
         }
 
@@ -58,7 +57,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitAssert(Tr.Assert azzert) {
         return maybeTransform(azzert,
-                scope.equals(azzert.getCondition().getId()),
+                scope == azzert.getCondition().getId(),
                 super::visitAssert,
                 Tr.Assert::getCondition,
                 UNWRAP_PARENS);
@@ -67,12 +66,12 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitAssign(Tr.Assign assign) {
         List<AstTransform> changes = maybeTransform(assign,
-                scope.equals(assign.getAssignment().getId()),
+                scope == assign.getAssignment().getId(),
                 super::visitAssign,
                 Tr.Assign::getAssignment,
                 UNWRAP_PARENS);
 
-        if (scope.equals(assign.getVariable().getId())) {
+        if (scope == assign.getVariable().getId()) {
             changes.addAll(transform(assign.getVariable(), UNWRAP_PARENS));
         }
 
@@ -82,12 +81,12 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitAssignOp(Tr.AssignOp assign) {
         List<AstTransform> changes = maybeTransform(assign,
-                scope.equals(assign.getAssignment().getId()),
+                scope == assign.getAssignment().getId(),
                 super::visitAssignOp,
                 Tr.AssignOp::getAssignment,
                 UNWRAP_PARENS);
 
-        if (scope.equals(assign.getVariable().getId())) {
+        if (scope == assign.getVariable().getId()) {
             changes.addAll(transform(assign.getVariable(), UNWRAP_PARENS));
         }
 
@@ -97,12 +96,12 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitBinary(Tr.Binary binary) {
         List<AstTransform> changes = maybeTransform(binary,
-                scope.equals(binary.getLeft().getId()),
+                scope == binary.getLeft().getId(),
                 super::visitBinary,
                 Tr.Binary::getLeft,
                 UNWRAP_PARENS);
 
-        if (scope.equals(binary.getRight().getId())) {
+        if (scope == binary.getRight().getId()) {
             changes.addAll(transform(binary.getRight(), UNWRAP_PARENS));
         }
 
@@ -112,7 +111,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitCase(Tr.Case caze) {
         return maybeTransform(caze,
-                caze.getPattern() != null && scope.equals(caze.getPattern().getId()),
+                caze.getPattern() != null && scope == caze.getPattern().getId(),
                 super::visitCase,
                 Tr.Case::getPattern,
                 UNWRAP_PARENS);
@@ -121,7 +120,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitFieldAccess(Tr.FieldAccess fieldAccess) {
         return maybeTransform(fieldAccess,
-                scope.equals(fieldAccess.getTarget().getId()),
+                scope == fieldAccess.getTarget().getId(),
                 super::visitFieldAccess,
                 Tr.FieldAccess::getTarget,
                 UNWRAP_PARENS);
@@ -130,7 +129,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitForEachLoop(Tr.ForEachLoop forEachLoop) {
         return maybeTransform(forEachLoop,
-                scope.equals(forEachLoop.getControl().getIterable().getId()),
+                scope == forEachLoop.getControl().getIterable().getId(),
                 super::visitForEachLoop,
                 f -> f.getControl().getIterable(),
                 UNWRAP_PARENS);
@@ -139,7 +138,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitForLoop(Tr.ForLoop forLoop) {
         return maybeTransform(forLoop,
-                scope.equals(forLoop.getControl().getCondition().getId()),
+                scope == forLoop.getControl().getCondition().getId(),
                 super::visitForLoop,
                 f -> f.getControl().getCondition(),
                 UNWRAP_PARENS);
@@ -148,7 +147,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitIf(Tr.If iff) {
         return maybeTransform(iff,
-                scope.equals(iff.getIfCondition().getTree().getId()),
+                scope == iff.getIfCondition().getTree().getId(),
                 super::visitIf,
                 i -> i.getIfCondition().getTree(),
                 UNWRAP_PARENS);
@@ -157,7 +156,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitInstanceOf(Tr.InstanceOf instanceOf) {
         return maybeTransform(instanceOf,
-                scope.equals(instanceOf.getExpr().getId()),
+                scope == instanceOf.getExpr().getId(),
                 super::visitInstanceOf,
                 Tr.InstanceOf::getExpr,
                 UNWRAP_PARENS);
@@ -166,7 +165,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitMemberReference(Tr.MemberReference memberRef) {
         return maybeTransform(memberRef,
-                scope.equals(memberRef.getContaining().getId()),
+                scope == memberRef.getContaining().getId(),
                 super::visitMemberReference,
                 Tr.MemberReference::getContaining,
                 UNWRAP_PARENS);
@@ -175,7 +174,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitMethodInvocation(Tr.MethodInvocation methodInvocation) {
         return maybeTransform(methodInvocation,
-                methodInvocation.getSelect() != null && scope.equals(methodInvocation.getSelect().getId()),
+                methodInvocation.getSelect() != null && scope == methodInvocation.getSelect().getId(),
                 super::visitMethodInvocation,
                 Tr.MethodInvocation::getSelect,
                 UNWRAP_PARENS);
@@ -185,11 +184,11 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitNewArray(Tr.NewArray newArray) {
         return maybeTransform(newArray,
-                newArray.getDimensions().stream().anyMatch(d -> d.getSize().getId().equals(scope)),
+                newArray.getDimensions().stream().anyMatch(d -> d.getSize().getId() == scope),
                 super::visitNewArray,
                 na -> na
                         .withDimensions(na.getDimensions().stream()
-                                .map(dim -> dim.getSize().getId().equals(scope) ?
+                                .map(dim -> dim.getSize().getId() == scope ?
                                         dim.withSize(((Tr.Parentheses<Expression>) dim.getSize()).getTree()) :
                                         dim
                                 )
@@ -201,7 +200,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitReturn(Tr.Return retrn) {
         return maybeTransform(retrn,
-                retrn.getExpr() != null && scope.equals(retrn.getExpr().getId()),
+                retrn.getExpr() != null && scope == retrn.getExpr().getId(),
                 super::visitReturn,
                 Tr.Return::getExpr,
                 UNWRAP_PARENS);
@@ -210,16 +209,16 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitTernary(Tr.Ternary ternary) {
         List<AstTransform> changes = maybeTransform(ternary,
-                scope.equals(ternary.getCondition().getId()),
+                scope == ternary.getCondition().getId(),
                 super::visitTernary,
                 Tr.Ternary::getCondition,
                 UNWRAP_PARENS);
 
-        if (scope.equals(ternary.getTruePart().getId())) {
+        if (scope == ternary.getTruePart().getId()) {
             changes.addAll(transform(ternary.getTruePart(), UNWRAP_PARENS));
         }
 
-        if (scope.equals(ternary.getFalsePart().getId())) {
+        if (scope == ternary.getFalsePart().getId()) {
             changes.addAll(transform(ternary.getFalsePart(), UNWRAP_PARENS));
         }
 
@@ -229,7 +228,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitThrow(Tr.Throw thrown) {
         return maybeTransform(thrown,
-                scope.equals(thrown.getException().getId()),
+                scope == thrown.getException().getId(),
                 super::visitThrow,
                 Tr.Throw::getException,
                 UNWRAP_PARENS);
@@ -238,7 +237,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitTypeCast(Tr.TypeCast typeCast) {
         return maybeTransform(typeCast,
-                scope.equals(typeCast.getExpr().getId()),
+                scope == typeCast.getExpr().getId(),
                 super::visitTypeCast,
                 Tr.TypeCast::getExpr,
                 UNWRAP_PARENS);
@@ -247,7 +246,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitUnary(Tr.Unary unary) {
         return maybeTransform(unary,
-                scope.equals(unary.getExpr().getId()),
+                scope == unary.getExpr().getId(),
                 super::visitUnary,
                 Tr.Unary::getExpr,
                 UNWRAP_PARENS);
@@ -256,7 +255,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitVariable(Tr.VariableDecls.NamedVar variable) {
         return maybeTransform(variable,
-                variable.getInitializer() != null && scope.equals(variable.getInitializer().getId()),
+                variable.getInitializer() != null && scope == variable.getInitializer().getId(),
                 super::visitVariable,
                 Tr.VariableDecls.NamedVar::getInitializer,
                 UNWRAP_PARENS);
@@ -265,7 +264,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitDoWhileLoop(Tr.DoWhileLoop doWhileLoop) {
         return maybeTransform(doWhileLoop,
-                scope.equals(doWhileLoop.getWhileCondition().getCondition().getTree().getId()),
+                scope == doWhileLoop.getWhileCondition().getCondition().getTree().getId(),
                 super::visitDoWhileLoop,
                 w -> w.getWhileCondition().getCondition().getTree(),
                 UNWRAP_PARENS);
@@ -274,7 +273,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitWhileLoop(Tr.WhileLoop whileLoop) {
         return maybeTransform(whileLoop,
-                scope.equals(whileLoop.getCondition().getTree().getId()),
+                scope == whileLoop.getCondition().getTree().getId(),
                 super::visitWhileLoop,
                 w -> w.getCondition().getTree(),
                 UNWRAP_PARENS);
@@ -283,7 +282,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitSwitch(Tr.Switch switzh) {
         return maybeTransform(switzh,
-                scope.equals(switzh.getSelector().getTree().getId()),
+                scope == switzh.getSelector().getTree().getId(),
                 super::visitSwitch,
                 s -> s.getSelector().getTree(),
                 UNWRAP_PARENS);
@@ -292,7 +291,7 @@ public class UnwrapParentheses extends ScopedRefactorVisitor {
     @Override
     public List<AstTransform> visitSynchronized(Tr.Synchronized synch) {
         return maybeTransform(synch,
-                scope.equals(synch.getLock().getTree().getId()),
+                scope == synch.getLock().getTree().getId(),
                 super::visitSynchronized,
                 s -> s.getLock().getTree(),
                 UNWRAP_PARENS);
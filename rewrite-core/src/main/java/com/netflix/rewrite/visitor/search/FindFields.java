@@ -16,33 +16,28 @@
 package com.netflix.rewrite.visitor.search;
 
 import com.netflix.rewrite.tree.Tr;
-import com.netflix.rewrite.tree.Tree;
 import com.netflix.rewrite.tree.TypeUtils;
-import com.netflix.rewrite.visitor.AstVisitor;
-import lombok.RequiredArgsConstructor;
+import com.netflix.rewrite.visitor.CollectingVisitor;
 
+import java.util.ArrayList;
 import java.util.List;
 
-import static java.util.Collections.emptyList;
-import static java.util.Collections.singletonList;
-
-@RequiredArgsConstructor
-public class FindFields extends AstVisitor<List<Tr.VariableDecls>> {
+public class FindFields extends CollectingVisitor<Tr.VariableDecls, List<Tr.VariableDecls>> {
     private final String fullyQualifiedName;
 
-    @Override
-    public List<Tr.VariableDecls> defaultTo(Tree t) {
-        return emptyList();
+    public FindFields(String fullyQualifiedName) {
+        super(ArrayList::new);
+        this.fullyQualifiedName = fullyQualifiedName;
     }
 
     @Override
     public List<Tr.VariableDecls> visitMultiVariable(Tr.VariableDecls multiVariable) {
         if(multiVariable.getTypeExpr() instanceof Tr.MultiCatch) {
-            return emptyList();
+            return defaultTo(multiVariable);
         }
         if(multiVariable.getTypeExpr() != null && TypeUtils.hasElementType(multiVariable.getTypeExpr().getType(), fullyQualifiedName)) {
-            return singletonList(multiVariable);
+            return collect(multiVariable);
         }
-        return emptyList();
+        return defaultTo(multiVariable);
     }
 }
@@ -16,29 +16,22 @@
 package com.netflix.rewrite.visitor.search;
 
 import com.netflix.rewrite.tree.Tr;
-import com.netflix.rewrite.tree.Tree;
-import com.netflix.rewrite.visitor.AstVisitor;
+import com.netflix.rewrite.visitor.CollectingVisitor;
 import com.netflix.rewrite.visitor.MethodMatcher;
 
+import java.util.ArrayList;
 import java.util.List;
 
-import static java.util.Collections.emptyList;
-import static java.util.Collections.singletonList;
-
-public class FindMethods extends AstVisitor<List<Tr.MethodInvocation>> {
+public class FindMethods extends CollectingVisitor<Tr.MethodInvocation, List<Tr.MethodInvocation>> {
     private final MethodMatcher matcher;
 
     public FindMethods(String signature) {
+        super(ArrayList::new);
         this.matcher = new MethodMatcher(signature);
     }
 
-    @Override
-    public List<Tr.MethodInvocation> defaultTo(Tree t) {
-        return emptyList();
-    }
-
     @Override
     public List<Tr.MethodInvocation> visitMethodInvocation(Tr.MethodInvocation method) {
-        return matcher.matches(method) ? singletonList(method) : super.visitMethodInvocation(method);
+        return matcher.matches(method) ? collect(method) : super.visitMethodInvocation(method);
     }
 }
\ No newline at end of file
@@ -16,41 +16,27 @@
 package com.netflix.rewrite.visitor.search;
 
 import com.netflix.rewrite.tree.NameTree;
-import com.netflix.rewrite.tree.Tree;
 import com.netflix.rewrite.tree.Type;
 import com.netflix.rewrite.tree.TypeUtils;
-import com.netflix.rewrite.visitor.AstVisitor;
-import lombok.RequiredArgsConstructor;
+import com.netflix.rewrite.visitor.CollectingVisitor;
 
 import java.util.Collections;
 import java.util.IdentityHashMap;
-import java.util.List;
 import java.util.Set;
 
-import static java.util.Collections.*;
-
-@RequiredArgsConstructor
-public class FindType extends AstVisitor<Set<NameTree>> {
+public class FindType extends CollectingVisitor<NameTree, Set<NameTree>> {
     private final String clazz;
 
-    @Override
-    public Set<NameTree> defaultTo(Tree t) {
-        return Collections.newSetFromMap(new IdentityHashMap<>());
-    }
-
-    @Override
-    public Set<NameTree> reduce(Set<NameTree> r1, Set<NameTree> r2) {
-        r1.addAll(r2);
-        return r1;
+    public FindType(String clazz) {
+        super(() -> Collections.newSetFromMap(new IdentityHashMap<>()));
+        this.clazz = clazz;
     }
 
     @Override
     public Set<NameTree> visitTypeName(NameTree name) {
         Type.Class asClass = TypeUtils.asClass(name.getType());
         if(asClass != null && asClass.getFullyQualifiedName().equals(clazz)) {
-            Set<NameTree> names = defaultTo(name);
-            names.add(name);
-            return names;
+            return collect(name);
         }
 
         return super.visitTypeName(name);
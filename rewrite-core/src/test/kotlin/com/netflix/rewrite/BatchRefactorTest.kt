@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite
+
+import com.netflix.rewrite.tree.Tr
+import com.netflix.rewrite.visitor.refactor.AstTransform
+import com.netflix.rewrite.visitor.refactor.RefactorVisitor
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ForkJoinPool
+
+class BatchRefactorTest : Parser() {
+    private val renameFoo = {
+        listOf<RefactorVisitor>(object : RefactorVisitor() {
+            override fun getRuleName() = "rename-foo"
+
+            override fun visitMethod(method: Tr.MethodDecl): MutableList<AstTransform> =
+                    maybeTransform(method, method.simpleName == "foo", { super.visitMethod(it) }) { m: Tr.MethodDecl ->
+                        m.withName(m.name.withName("bar"))
+                    }
+        })
+    }
+
+    private val cus by lazy {
+        (1..20).map { n -> parse("public class A$n { public void foo() {} }") }
+    }
+
+    @Test
+    fun resultsAreInTheOrderOfTheirCompilationUnits() {
+        val batch = BatchRefactor(renameFoo, ForkJoinPool(4), false)
+        val results = batch.fix(cus)
+
+        assertEquals(cus.map { it.classes[0].simpleName }, results.map { it.original.classes[0].simpleName })
+        assertTrue(results.all { it.fixed.classes[0].methods[0].simpleName == "bar" })
+        assertTrue(results.all { it.rulesThatMadeChanges == setOf("rename-foo") })
+        assertTrue(batch.nanosByRule.getValue("rename-foo") > 0)
+    }
+
+    @Test
+    fun resultsAreStreamedToCallback() {
+        val results = ConcurrentLinkedQueue<RefactorResult>()
+        BatchRefactor(renameFoo).fix(cus) { results.add(it) }
+        assertEquals(cus.size, results.size)
+    }
+}
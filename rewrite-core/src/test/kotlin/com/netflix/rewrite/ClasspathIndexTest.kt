@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite
+
+import com.netflix.rewrite.tree.Type
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.nio.file.Files
+import java.nio.file.attribute.FileTime
+import java.util.zip.ZipFile
+
+class ClasspathIndexTest {
+    @JvmField
+    @Rule
+    val temp = TemporaryFolder()
+
+    private val junit = Parser.dependenciesFromClasspath("junit")
+
+    private fun junitClassfile(binaryName: String): ByteArray =
+            ZipFile(junit.first { it.fileName.toString().startsWith("junit") }.toFile()).use { jar ->
+                jar.getInputStream(jar.getEntry(binaryName.replace('.', '/') + ".class")).readAllBytes()
+            }
+
+    @Test
+    fun indexClassesOnTheClasspath() {
+        val index = ClasspathIndex.open(junit, temp.root.toPath().resolve("junit.idx"))
+
+        assertTrue(index.contains("org.junit.ComparisonFailure"))
+        assertFalse(index.contains("java.lang.String"))
+
+        val comparisonFailure = index.classType("org.junit.ComparisonFailure", emptyList(), false)!!
+        assertTrue(comparisonFailure.members.first { it.name == "fExpected" }.type is Type.ShallowClass)
+        assertEquals("java.lang.AssertionError", comparisonFailure.supertype?.fullyQualifiedName)
+    }
+
+    @Test
+    fun reuseIndexBuiltForTheSameClasspath() {
+        val indexFile = temp.root.toPath().resolve("junit.idx")
+        val size = ClasspathIndex.open(junit, indexFile).size()
+
+        // an index that was rebuilt would be modified just now
+        val marked = FileTime.fromMillis(86_400_000)
+        Files.setLastModifiedTime(indexFile, marked)
+
+        assertEquals(size, ClasspathIndex.open(junit, indexFile).size())
+        assertEquals(marked, Files.getLastModifiedTime(indexFile))
+    }
+
+    @Test
+    fun rebuildIndexWhenAClassInADirectoryIsRecompiled() {
+        val classes = temp.newFolder("classes").toPath()
+        val classfile = classes.resolve("Recompiled.class")
+        Files.write(classfile, junitClassfile("org.junit.ComparisonFailure"))
+        Files.setLastModifiedTime(classfile, FileTime.fromMillis(86_400_000))
+
+        val indexFile = temp.root.toPath().resolve("classes.idx")
+        assertTrue(ClasspathIndex.open(listOf(classes), indexFile).contains("org.junit.ComparisonFailure"))
+
+        // neither the directory's size nor its modification time changes when a classfile in it is replaced
+        Files.write(classfile, junitClassfile("org.junit.Assert"))
+        Files.setLastModifiedTime(classfile, FileTime.fromMillis(2 * 86_400_000))
+
+        val rebuilt = ClasspathIndex.open(listOf(classes), indexFile)
+        assertTrue(rebuilt.contains("org.junit.Assert"))
+        assertFalse(rebuilt.contains("org.junit.ComparisonFailure"))
+    }
+
+    @Test
+    fun parseWithIndex() {
+        val index = ClasspathIndex.open(junit, temp.root.toPath().resolve("junit.idx"))
+
+        val a = Parser(junit).classpathIndex(index).parse("""
+            import org.junit.runner.notification.Failure;
+            public class A {
+                Failure failure;
+            }
+        """.trimIndent())
+
+        val failure = a.classes[0].fields[0].typeExpr?.type.asClass()!!
+        assertEquals("org.junit.runner.notification.Failure", failure.fullyQualifiedName)
+
+        // javac doesn't complete the types of fields of a type it completes, but their fields are found in the index
+        val description = failure.members.first { it.name == "fDescription" }.type.asClass()!!
+        assertEquals("org.junit.runner.Description", description.fullyQualifiedName)
+        assertTrue(description.members.any { it.name == "fDisplayName" })
+    }
+}
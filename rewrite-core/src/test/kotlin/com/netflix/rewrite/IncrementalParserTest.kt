@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+class IncrementalParserTest {
+    @JvmField
+    @Rule
+    val temp = TemporaryFolder()
+
+    @Test
+    fun reparseChangedFilesAndTheirDependents() {
+        val a = temp.source("A.java", "public class A { B b; }")
+        val b = temp.source("B.java", "public class B { }")
+        val c = temp.source("C.java", "public class C { }")
+
+        val parser = IncrementalParser()
+        val cus = parser.parse(listOf(a, b, c).map { it.toPath() }, temp.root.toPath())
+
+        temp.source("B.java", "public class B { int n; }")
+        val reparsed = parser.reparse(listOf(b.toPath()))
+
+        assertEquals(setOf("A.java", "B.java"), reparsed.map { it.sourcePath }.toSet())
+
+        val bType = parser.compilationUnits[0].classes[0].fields[0].typeExpr?.type.asClass()!!
+        assertEquals("n", bType.members[0].name)
+
+        assertTrue(cus[2] === parser.compilationUnits[2])
+    }
+
+    @Test
+    fun reparseTransitiveDependents() {
+        val a = temp.source("A.java", "public class A { int n() { return new B().c().n; } }")
+        val b = temp.source("B.java", "public class B { C c() { return null; } }")
+        val c = temp.source("C.java", "public class C { int n; }")
+
+        val parser = IncrementalParser()
+        parser.parse(listOf(a, b, c).map { it.toPath() }, temp.root.toPath())
+
+        temp.source("C.java", "public class C { long n; }")
+        val reparsed = parser.reparse(listOf(c.toPath()))
+
+        assertEquals(setOf("A.java", "B.java", "C.java"), reparsed.map { it.sourcePath }.toSet())
+    }
+
+    @Test
+    fun deletedFilesNoLongerResolve() {
+        val a = temp.source("A.java", "public class A { B b; }")
+        val b = temp.source("B.java", "public class B { int n; }")
+
+        val parser = IncrementalParser()
+        parser.parse(listOf(a, b).map { it.toPath() }, temp.root.toPath())
+
+        assertTrue(b.delete())
+        val reparsed = parser.reparse(listOf(b.toPath()))
+
+        assertEquals(listOf("A.java"), reparsed.map { it.sourcePath })
+        assertEquals(listOf("A.java"), parser.compilationUnits.map { it.sourcePath })
+
+        val bType = parser.compilationUnits[0].classes[0].fields[0].typeExpr?.type.asClass()
+        assertTrue(bType == null || bType.members.isEmpty())
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite
+
+import org.junit.Assert.assertEquals
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.nio.charset.Charset
+
+class ParallelParserTest {
+    @JvmField
+    @Rule
+    val temp = TemporaryFolder()
+
+    @Test
+    fun parsesInInputOrderAndResolvesTypesAcrossShards() {
+        val a = temp.source("a/A.java", """
+            package a;
+            import b.B;
+            public class A {
+                B b;
+            }
+        """)
+
+        val b = temp.source("b/B.java", """
+            package b;
+            public class B {
+                int n;
+            }
+        """)
+
+        val cus = ParallelParser(null, Charset.defaultCharset(), false, 2)
+                .parse(listOf(b.toPath(), a.toPath()), temp.root.toPath())
+
+        assertEquals(listOf("b/B.java", "a/A.java"), cus.map { it.sourcePath })
+        assertEquals("b.B", cus[1].classes[0].fields[0].typeExpr?.type.asClass()?.fullyQualifiedName)
+    }
+
+    @Test
+    fun packagesThatReferToEachOtherAreKeptInOneShard() {
+        val a = temp.source("a/A.java", "package a; import b.B; public class A { B b; }")
+        val b = temp.source("b/B.java", "package b; public class B { c.C c; }")
+        val c = temp.source("c/C.java", "package c; public class C {}")
+        val d = temp.source("d/D.java", "package d; import java.util.List; public class D { List<String> l; }")
+
+        val shards = ParallelParser(null, Charset.defaultCharset(), false, 4)
+                .shard(listOf(a, b, c, d).map { it.toPath() })
+
+        assertEquals(setOf(setOf(a, b, c), setOf(d)).map { files -> files.map { it.toPath() }.toSet() }.toSet(),
+                shards.map { it.toSet() }.toSet())
+    }
+
+    @Test
+    fun sourceRoots() {
+        val a = temp.source("src/main/java/a/A.java", "package a; public class A {}")
+        val b = temp.source("src/main/java/a/b/B.java", "package a.b; public class B {}")
+
+        assertEquals(listOf(File(temp.root, "src/main/java").toPath()),
+                Parser.sourceRoots(listOf(a.toPath(), b.toPath()), Charset.defaultCharset()))
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertThrows
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.io.UncheckedIOException
+import kotlin.streams.toList
+
+class ParserTest {
+    @JvmField
+    @Rule
+    val temp = TemporaryFolder()
+
+    @Test
+    fun parseLazily() {
+        val a = temp.source("A.java", """
+            public class A {
+                B b;
+            }
+        """)
+
+        val b = temp.source("B.java", """
+            public class B {
+                A a;
+            }
+        """)
+
+        val cus = Parser().parseLazily(listOf(a.toPath(), b.toPath()), temp.root.toPath()).toList()
+
+        assertEquals(listOf("A.java", "B.java"), cus.map { it.sourcePath })
+        assertEquals("B", cus[0].classes[0].fields[0].typeExpr?.type.asClass()?.fullyQualifiedName)
+        assertEquals("A", cus[1].classes[0].fields[0].typeExpr?.type.asClass()?.fullyQualifiedName)
+    }
+
+    @Test
+    fun parseSnippetsInMemory() {
+        val a = Parser().parse("public class A { B b; }", "public class B {}")
+
+        assertEquals("A.java", a.sourcePath)
+        assertEquals("B", a.classes[0].fields[0].typeExpr?.type.asClass()?.fullyQualifiedName)
+        assertEquals("public class A { B b; }", a.print())
+    }
+
+    @Test
+    fun parseLargeSourceFile() {
+        // large enough to be mapped into memory rather than read onto the heap
+        val fields = (1..4000).joinToString("\n") { "    int f$it; // é" }
+        val a = temp.source("A.java", "public class A {\n$fields\n}")
+
+        val cu = Parser(null, Charsets.UTF_8, false).parse(listOf(a.toPath()), temp.root.toPath())[0]
+
+        assertEquals(4000, cu.classes[0].fields.size)
+        assertEquals(a.readText(), cu.print())
+    }
+
+    @Test
+    fun malformedSourceFileFailsToParse() {
+        val a = File(temp.root, "A.java").apply {
+            // an invalid two byte sequence in UTF-8
+            writeBytes("public class A {} // ".toByteArray() + byteArrayOf(0xC3.toByte(), 0x28))
+        }
+
+        assertThrows(UncheckedIOException::class.java) {
+            Parser(null, Charsets.UTF_8, false).parse(listOf(a.toPath()), temp.root.toPath())
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+
+class PatchWriterTest {
+
+    @Test
+    fun writeChangedCompilationUnitsToOnePatch() {
+        val a = Parser().parse("import java.util.List;\npublic class A {}")
+        val b = Parser().parse("public class B {}")
+
+        val changed = RefactorResult(a, a.withImports(emptyList()), emptySet())
+        val unchanged = RefactorResult(b, b, emptySet())
+
+        val patch = ByteArrayOutputStream()
+        PatchWriter(patch).write(listOf(changed, unchanged).stream())
+
+        assertEquals(changed.diff(), patch.toString())
+        assertEquals("""
+            |diff --git a/A.java b/A.java
+            |index 7b8929b..e98032a 100644
+            |--- a/A.java
+            |+++ b/A.java
+            |@@ -1,2 +1,2 @@
+            |-import java.util.List;
+            |+
+            | public class A {}
+            |\ No newline at end of file
+            |
+        """.trimMargin(), patch.toString())
+    }
+}
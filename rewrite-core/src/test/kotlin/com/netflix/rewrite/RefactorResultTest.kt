@@ -30,6 +30,13 @@ class RefactorResultTest {
         assertEquals("", diff.diff)
     }
 
+    @Test
+    fun unchangedCompilationUnit() {
+        val cu = Parser().parse("public class A {}")
+
+        assertEquals("", RefactorResult(cu, cu, emptySet()).diff())
+    }
+
     @Test
     fun singleLineChange() {
         val diff = RefactorResult.InMemoryDiffEntry(Paths.get("com/netflix/MyJavaClass.java"), null,
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 the original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite
+
+import com.netflix.rewrite.tree.Tr
+import com.netflix.rewrite.visitor.refactor.AstTransform
+import com.netflix.rewrite.visitor.refactor.RefactorVisitor
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class RefactorTest : Parser() {
+    private val a = """
+        public class A {
+            public void foo() {
+            }
+
+            public void bar() {
+            }
+        }
+    """
+
+    private fun changeMethodName(from: String, to: String, idempotent: Boolean = false) = object : RefactorVisitor() {
+        var runs = 0
+
+        override fun getRuleName() = "$from-to-$to"
+
+        override fun isIdempotent() = idempotent
+
+        override fun visitCompilationUnit(cu: Tr.CompilationUnit): MutableList<AstTransform> {
+            runs++
+            return super.visitCompilationUnit(cu)
+        }
+
+        override fun visitMethod(method: Tr.MethodDecl): MutableList<AstTransform> =
+                maybeTransform(method, method.simpleName == from, { super.visitMethod(it) }) { m: Tr.MethodDecl ->
+                    m.withName(m.name.withName(to))
+                }
+    }
+
+    @Test
+    fun fusedVisitorsWithoutOverlappingTransformations() {
+        val result = parse(a).refactor()
+                .visit(changeMethodName("foo", "foo2"))
+                .visit(changeMethodName("bar", "bar2"))
+                .visit(changeMethodName("baz", "baz2"))
+                .fused(true)
+                .fix()
+
+        assertRefactored(result.fixed, """
+            public class A {
+                public void foo2() {
+                }
+            
+                public void bar2() {
+                }
+            }
+        """)
+        assertEquals(setOf("foo-to-foo2", "bar-to-bar2"), result.rulesThatMadeChanges)
+    }
+
+    @Test
+    fun fusedVisitorsWithOverlappingTransformationsAreAppliedInOrder() {
+        val result = parse(a).refactor()
+                .visit(changeMethodName("foo", "foo2"))
+                .visit(changeMethodName("foo2", "foo3"))
+                .fused(true)
+                .fix()
+
+        assertRefactored(result.fixed, """
+            public class A {
+                public void foo3() {
+                }
+            
+                public void bar() {
+                }
+            }
+        """)
+    }
+
+    @Test
+    fun visitorsOnlyRunAgainAfterTheCompilationUnitChanges() {
+        val foo = changeMethodName("foo", "foo2")
+        val bar = changeMethodName("baz", "baz2")
+
+        parse(a).refactor().visit(foo).visit(bar).fix()
+
+        assertEquals(2, foo.runs)
+        assertEquals(1, bar.runs)
+    }
+
+    @Test
+    fun idempotentVisitorsAreNotRunAgainAfterTheirOwnChanges() {
+        val foo = changeMethodName("foo", "foo2", idempotent = true)
+
+        parse(a).refactor().visit(foo).fix()
+
+        assertEquals(1, foo.runs)
+    }
+}
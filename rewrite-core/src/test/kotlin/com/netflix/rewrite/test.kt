@@ -20,6 +20,8 @@ import com.netflix.rewrite.tree.Tr
 import com.netflix.rewrite.tree.Type
 import com.netflix.rewrite.tree.TypeUtils
 import org.junit.Assert.assertEquals
+import org.junit.rules.TemporaryFolder
+import java.io.File
 
 /**
  * The first statement of the first method in the first class declaration
@@ -40,4 +42,13 @@ fun Type?.asClass(): Type.Class? = TypeUtils.asClass(this)
 
 fun Type?.asArray(): Type.Array? = TypeUtils.asArray(this)
 
-fun Type?.asGeneric(): Type.GenericTypeVariable? = TypeUtils.asGeneric(this)
\ No newline at end of file
+fun Type?.asGeneric(): Type.GenericTypeVariable? = TypeUtils.asGeneric(this)
+
+/**
+ * Write a source file to a path relative to the root of the temporary folder, creating its directories.
+ */
+fun TemporaryFolder.source(path: String, text: String): File =
+        File(root, path).apply {
+            parentFile.mkdirs()
+            writeText(text.trimIndent())
+        }
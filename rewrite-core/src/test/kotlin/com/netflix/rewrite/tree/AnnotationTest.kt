@@ -60,6 +60,18 @@ open class AnnotationTest : Parser() {
         assertEquals("@Deprecated ( )", ann.printTrimmed())
     }
 
+    @Test
+    fun emptyParenthesesAfterCommentContainingParentheses() {
+        val a = parse("""
+            @Deprecated /* (a) */ ( )
+            public class A {}
+        """)
+
+        val ann = a.classes[0].annotations[0]
+
+        assertEquals("@Deprecated /* (a) */ ( )", ann.printTrimmed())
+    }
+
     @Test
     fun default() {
         val a = parse("""
@@ -48,6 +48,18 @@ open class BinaryTest : Parser() {
         assertEquals("0 + 1", bin.printTrimmed())
     }
 
+    @Test
+    fun formatOperatorAfterComment() {
+        val a = parse("""
+            public class A {
+                int n = 0 /*a*/+ 1;
+            }
+        """)
+
+        val bin = a.classes[0].fields[0].vars[0].initializer as Tr.Binary
+        assertEquals("0 /*a*/+ 1", bin.printTrimmed())
+    }
+
     /**
      * String folding needs to be disabled in the parser to preserve the binary expression in the AST!
      * @see com.sun.tools.javac.parser.JavacParser.allowStringFolding
@@ -17,6 +17,7 @@ package com.netflix.rewrite.tree
 
 import com.netflix.rewrite.Parser
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
 import org.junit.Test
 
 open class CompilationUnitTest : Parser() {
@@ -54,4 +55,30 @@ open class CompilationUnitTest : Parser() {
         
         assertEquals(a.trimIndent(), parse(a).printTrimmed())
     }
-}
\ No newline at end of file
+
+    @Test
+    fun printToWriter() {
+        val a = """
+            package a;
+            public class A { int n = 0; }
+        """.trimIndent()
+
+        val out = java.io.StringWriter()
+        parse(a).print(out)
+
+        assertEquals(a, out.toString())
+    }
+
+    @Test
+    fun refactoredCopyPrintsUnchangedElementsFromOriginalSource() {
+        val a = parse("""
+            import java.util.List;
+            public class A { int n = 0; }
+        """)
+
+        val b = a.withImports(emptyList())
+
+        assertSame(a.originalSource, b.originalSource)
+        assertEquals("public class A { int n = 0; }", b.printTrimmed())
+    }
+}
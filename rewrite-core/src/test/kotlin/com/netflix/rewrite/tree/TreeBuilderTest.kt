@@ -46,6 +46,27 @@ class TreeBuilderTest {
         assertTrue(snippets[0] is Tr.MethodInvocation)
     }
 
+    @Test
+    fun snippetsAreAttributedByReusedParsers() {
+        val a = Parser().parse("""
+            import java.util.List;
+            public class A {
+                void foo(List<String> others) {
+                }
+            }
+        """.trimIndent())
+
+        val methodBodyCursor = RetrieveCursorVisitor(a.classes[0].methods[0].body!!.id).visit(a)
+
+        // fails to attribute, which must not keep later snippets from being attributed
+        TreeBuilder.buildSnippet<Statement>(a, methodBodyCursor, "doesNotExist();")
+
+        repeat(2) {
+            val snippets = TreeBuilder.buildSnippet<Statement>(a, methodBodyCursor, "others.add(\"a\");")
+            assertEquals("add", (snippets[0] as Tr.MethodInvocation).type?.name)
+        }
+    }
+
     @Test
     fun injectSnippetIntoMethod() {
         val a = Parser().parse("""
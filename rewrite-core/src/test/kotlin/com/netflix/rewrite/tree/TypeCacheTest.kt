@@ -0,0 +1,99 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite.tree
+
+import com.netflix.rewrite.Parser
+import com.netflix.rewrite.asClass
+import org.junit.Assert.*
+import org.junit.Test
+
+class TypeCacheTest {
+    private val source = """
+        public class A {
+            java.io.File file;
+        }
+    """.trimIndent()
+
+    @Test
+    fun typesAreInternedInTheParsersCache() {
+        val cache = TypeCache()
+        val a = Parser().typeCache(cache).parse(source)
+        val global = Parser().parse(source)
+
+        val file = a.classes[0].fields[0].typeExpr?.type.asClass()!!
+        assertFalse(file === global.classes[0].fields[0].typeExpr?.type.asClass())
+
+        cache.bind().use {
+            assertTrue(file === Type.Class.build("java.io.File"))
+        }
+
+        val stats = cache.stats
+        assertTrue(stats.misses > 0)
+        assertEquals(stats.misses, stats.entries)
+        assertTrue(stats.approximateBytes > 0)
+    }
+
+    @Test
+    fun scopesRestoreThePreviouslyBoundCache() {
+        val outer = TypeCache()
+        val inner = TypeCache()
+
+        outer.bind().use {
+            inner.bind().use {
+                assertTrue(TypeCache.current() === inner)
+            }
+            assertTrue(TypeCache.current() === outer)
+        }
+        assertTrue(TypeCache.current() === TypeCache.global())
+    }
+
+    @Test
+    fun leastRecentlyUsedEntriesAreEvicted() {
+        val cache = TypeCache(3)
+        cache.bind().use {
+            // spaced apart, so that the order in which they were last used is unambiguous
+            val a = Type.Class.build("evicted.A", emptyList(), emptyList(), emptyList(), null, false)
+            Thread.sleep(1)
+            val b = Type.Class.build("evicted.B", emptyList(), emptyList(), emptyList(), null, false)
+            Thread.sleep(1)
+            val c = Type.Class.build("evicted.C", emptyList(), emptyList(), emptyList(), null, false)
+
+            // A is used again, which leaves B the least recently used
+            Thread.sleep(1)
+            assertTrue(a === Type.Class.build("evicted.A", emptyList(), emptyList(), emptyList(), null, false))
+            Type.Class.build("evicted.D", emptyList(), emptyList(), emptyList(), null, false)
+
+            assertTrue(cache.stats.entries <= 3)
+            assertTrue(cache.stats.evictions > 0)
+            assertTrue(a === Type.Class.build("evicted.A", emptyList(), emptyList(), emptyList(), null, false))
+            assertTrue(c === Type.Class.build("evicted.C", emptyList(), emptyList(), emptyList(), null, false))
+            assertFalse(b === Type.Class.build("evicted.B", emptyList(), emptyList(), emptyList(), null, false))
+        }
+    }
+
+    @Test
+    fun clear() {
+        val cache = TypeCache()
+        val a = Parser().typeCache(cache).parse(source)
+        cache.clear()
+
+        assertEquals(0, cache.stats.entries)
+
+        val reparsed = Parser().typeCache(cache).parse(source)
+        assertFalse(a.classes[0].type === reparsed.classes[0].type)
+        assertTrue(TypeUtils.deepEquals(a.classes[0].type, reparsed.classes[0].type))
+    }
+}
@@ -19,6 +19,8 @@ import com.netflix.rewrite.asClass
 import com.netflix.rewrite.Parser
 import org.junit.Assert.*
 import org.junit.Test
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
 
 open class TypeTest : Parser() {
     @Test
@@ -119,4 +121,125 @@ open class TypeTest : Parser() {
 
         assertTrue(a.classes[0].type !== a2.classes[0].type)
     }
-}
\ No newline at end of file
+
+    @Test
+    fun typesBuiltConcurrentlyAreInterned() {
+        val pool = Executors.newFixedThreadPool(4)
+        try {
+            val types = pool.invokeAll((1..16).map {
+                Callable {
+                    Type.Class.build("concurrent.A", listOf(Type.Var("n", Type.Primitive.Int, setOf(Flag.Private))),
+                            emptyList(), emptyList(), null, false)
+                }
+            }).map { it.get() }
+
+            assertEquals(1, types.map { System.identityHashCode(it) }.toSet().size)
+        } finally {
+            pool.shutdownNow()
+        }
+    }
+
+    @Test
+    fun structuralHashIsConsistentWithDeepEquals() {
+        val a = Parser().parse("public class A { String foo; }").classes[0].type.asClass()!!
+        val a2 = Parser().parse("public class A { String bar; }").classes[0].type.asClass()!!
+
+        val n = Type.Var("n", a, setOf(Flag.Private))
+        assertTrue(n.deepEquals(Type.Var("n", a, setOf(Flag.Private))))
+        assertEquals(n.structuralHash(), Type.Var("n", a, setOf(Flag.Private)).structuralHash())
+        assertNotEquals(n.structuralHash(), Type.Var("n", a2, setOf(Flag.Private)).structuralHash())
+    }
+
+    @Test
+    fun lazyTypeAttribution() {
+        val a = Parser().typeCache(TypeCache()).lazyTypeAttribution(true).parse("""
+            public class A {
+                B b;
+            }
+        """.trimIndent(), "public class B extends C { int n; }", "public class C { A a; }")
+
+        val b = a.classes[0].fields[0].typeExpr?.type.asClass()!!
+        assertEquals("B", b.fullyQualifiedName)
+        assertTrue(b.isLazy)
+
+        assertEquals("n", b.members[0].name)
+        assertFalse(b.isLazy)
+
+        val c = b.supertype!!
+        assertEquals("C", c.fullyQualifiedName)
+        assertTrue(c.isLazy)
+
+        val eager = Parser().typeCache(TypeCache()).parse("""
+            public class A {
+                B b;
+            }
+        """.trimIndent(), "public class B extends C { int n; }", "public class C { A a; }")
+
+        val eagerB = eager.classes[0].fields[0].typeExpr?.type.asClass()!!
+        assertTrue(TypeUtils.deepEquals(eagerB, b))
+    }
+
+    @Test
+    fun methodCalledTwiceLeavesLazyDeclaringTypeUnresolved() {
+        val a = Parser().typeCache(TypeCache()).lazyTypeAttribution(true).parse("""
+            public class A {
+                void test(B b) {
+                    b.foo();
+                    b.foo();
+                }
+            }
+        """.trimIndent(), "public class B { void foo() {} }")
+
+        val calls = a.classes[0].methods[0].body!!.statements.filterIsInstance<Tr.MethodInvocation>()
+        assertEquals(2, calls.size)
+        assertTrue(calls[0].type === calls[1].type)
+        assertTrue(calls[0].type!!.declaringType.isLazy)
+    }
+
+    @Test
+    fun lazyTypeAttributionNeedsATypeCacheOfItsOwn() {
+        assertThrows(IllegalStateException::class.java) {
+            Parser().typeCache(TypeCache.global()).lazyTypeAttribution(true).parse("public class A {}")
+        }
+
+        val shared = TypeCache()
+        Parser().typeCache(shared).lazyTypeAttribution(true).parse("public class A {}")
+        assertThrows(IllegalStateException::class.java) {
+            Parser().typeCache(shared).lazyTypeAttribution(true).parse("public class B {}")
+        }
+    }
+
+    @Test
+    fun typesReferringToLazilyBuiltClassesEqualThoseReferringToEagerOnes() {
+        TypeCache().bind().use {
+            val n = Type.Var("n", Type.Primitive.Int, setOf(Flag.Private))
+            val eager = Type.Class.build("mixed.A", listOf(n), emptyList(), emptyList(), null, false)
+            val lazy = Type.Class.lazy("mixed.A", emptyList()) { Type.Class.Resolution(listOf(n), emptyList(), null) }
+
+            assertTrue(TypeUtils.deepEquals(Type.Var("a", eager, setOf()), Type.Var("a", lazy, setOf())))
+            assertTrue(TypeUtils.deepEquals(Type.Var("a", lazy, setOf()), Type.Var("a", eager, setOf())))
+
+            val signature = Type.Method.Signature(eager, emptyList())
+            val lazySignature = Type.Method.Signature(lazy, emptyList())
+
+            val foo = Type.Method.build(Type.Class.OBJECT, "foo", signature, signature, emptyList(), setOf(Flag.Public))
+            val fooOfLazy = Type.Method.build(Type.Class.OBJECT, "foo", lazySignature, lazySignature, emptyList(), setOf(Flag.Public))
+            assertTrue(TypeUtils.deepEquals(foo, fooOfLazy))
+            assertSame(foo, fooOfLazy)
+
+            val barOfLazy = Type.Method.build(Type.Class.OBJECT, "bar", lazySignature, lazySignature, emptyList(), setOf(Flag.Public))
+            val bar = Type.Method.build(Type.Class.OBJECT, "bar", signature, signature, emptyList(), setOf(Flag.Public))
+            assertSame(barOfLazy, bar)
+        }
+    }
+
+    @Test
+    fun methodsDifferingOnlyInNameAreDistinct() {
+        val signature = Type.Method.Signature(Type.Primitive.Void, emptyList())
+        val foo = Type.Method.build(Type.Class.OBJECT, "foo", signature, signature, emptyList(), setOf(Flag.Public))
+        val bar = Type.Method.build(Type.Class.OBJECT, "bar", signature, signature, emptyList(), setOf(Flag.Public))
+
+        assertFalse(foo.deepEquals(bar))
+        assertTrue(foo === Type.Method.build(Type.Class.OBJECT, "foo", signature, signature, emptyList(), setOf(Flag.Public)))
+    }
+}
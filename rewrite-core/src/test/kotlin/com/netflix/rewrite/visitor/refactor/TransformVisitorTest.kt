@@ -19,7 +19,10 @@ import com.netflix.rewrite.assertRefactored
 import com.netflix.rewrite.Parser
 import com.netflix.rewrite.tree.Cursor
 import com.netflix.rewrite.tree.Tr
+import com.netflix.rewrite.tree.Tree
+import org.junit.Assert.assertEquals
 import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertTrue
 import org.junit.Test
 
 class TransformVisitorTest : Parser() {
@@ -70,4 +73,49 @@ class TransformVisitorTest : Parser() {
 
         a.refactor().visit(accessCursor).fix().fixed
     }
+
+    @Test
+    fun subtreesWithoutTargetsAreLeftUntouched() {
+        val a = parse("""
+            public class A {
+                public void test() {
+                }
+
+                public void untouched() {
+                    int n = 0;
+                }
+            }
+        """)
+
+        val test = a.classes[0].methods[0]
+        val rename = AstTransform(test.id, "rename", Tr.MethodDecl::class.java as Class<Tree>) { m, _ ->
+            (m as Tr.MethodDecl).withName(m.name.withName("test2"))
+        }
+
+        val fixed = TransformVisitor(listOf(rename)).visit(a) as Tr.CompilationUnit
+
+        assertEquals("test2", fixed.classes[0].methods[0].name.simpleName)
+        assertTrue(a.classes[0].methods[1] === fixed.classes[0].methods[1])
+    }
+
+    @Test
+    fun transformNestedElementOfVisitedTree() {
+        val a = parse("""
+            public class A {
+                public void test() {
+                }
+            }
+        """)
+
+        val renameFromMethod = object : RefactorVisitor() {
+            override fun visitMethod(method: Tr.MethodDecl): MutableList<AstTransform> =
+                    transform(method.name) { n: Tr.Ident -> n.withName("test2") }
+        }
+
+        val transforms = renameFromMethod.visit(a)
+        assertNotNull(transforms[0].cursor)
+
+        val fixed = TransformVisitor(transforms).visit(a) as Tr.CompilationUnit
+        assertEquals("test2", fixed.classes[0].methods[0].name.simpleName)
+    }
 }
@@ -38,6 +38,23 @@ open class FindMethodTest : Parser() {
         assertEquals("Collections.emptyList()", m.printTrimmed())
     }
 
+    @Test
+    fun reuseVisitorAcrossTrees() {
+        val a = parse("""
+            import java.util.Collections;
+            public class A {
+               Object o1 = Collections.emptyList();
+               Object o2 = Collections.emptyList();
+            }
+        """)
+
+        val findMethods = FindMethods("java.util.Collections emptyList()")
+
+        assertEquals(2, findMethods.visit(a).size)
+        assertEquals(2, findMethods.visit(a.classes[0]).size)
+        assertEquals(2, findMethods.visit(a.classes).size)
+    }
+
     @Test
     fun findStaticallyImportedMethodCalls() {
         val a = parse("""
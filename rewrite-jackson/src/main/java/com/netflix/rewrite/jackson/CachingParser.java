@@ -0,0 +1,241 @@
+package com.netflix.rewrite.jackson;
+
+import com.netflix.rewrite.Parser;
+import com.netflix.rewrite.internal.lang.Nullable;
+import com.netflix.rewrite.tree.Tr;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A parser backed by a persistent, content-addressed cache of serialized compilation units. Only source files
+ * whose content, path, parser settings or classpath have changed since they were last cached are parsed.
+ * <p>
+ * The cache is bounded in size, and the least recently used entries are evicted first. Note that cached type
+ * attribution reflects the other source files as they were when a compilation unit was cached.
+ */
+public class CachingParser {
+    private static final String CACHE_FILE_EXTENSION = ".smile";
+
+    private final TreeJacksonSerializer serializer = new TreeJacksonSerializer();
+
+    private final Path cacheDirectory;
+    private final long maxCacheSizeBytes;
+
+    @Nullable
+    private final List<Path> classpath;
+
+    private final Charset charset;
+    private final boolean relaxedClassTypeMatching;
+
+    /**
+     * Combined with each source file's content to form its cache key.
+     */
+    private final byte[] settingsFingerprint;
+
+    public CachingParser(Path cacheDirectory, long maxCacheSizeBytes, @Nullable List<Path> classpath) {
+        this(cacheDirectory, maxCacheSizeBytes, classpath, Charset.defaultCharset(), false);
+    }
+
+    public CachingParser(Path cacheDirectory, long maxCacheSizeBytes, @Nullable List<Path> classpath,
+                         Charset charset, boolean relaxedClassTypeMatching) {
+        this.cacheDirectory = cacheDirectory;
+        this.maxCacheSizeBytes = maxCacheSizeBytes;
+        this.classpath = classpath;
+        this.charset = charset;
+        this.relaxedClassTypeMatching = relaxedClassTypeMatching;
+
+        var fingerprint = new StringBuilder()
+                .append(charset.name()).append('\n')
+                .append(relaxedClassTypeMatching).append('\n');
+        if (classpath != null) {
+            for (Path entry : classpath) {
+                // file size and modification time stand in for the content of classpath jars, which can be large
+                fingerprint.append(entry.toAbsolutePath().normalize());
+                try {
+                    fingerprint.append(':').append(Files.size(entry))
+                            .append(':').append(Files.getLastModifiedTime(entry).toMillis());
+                } catch (IOException ignored) {
+                    // a missing classpath entry is still part of the fingerprint by name
+                }
+                fingerprint.append('\n');
+            }
+        }
+        this.settingsFingerprint = fingerprint.toString().getBytes(StandardCharsets.UTF_8);
+
+        try {
+            Files.createDirectories(cacheDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public List<Tr.CompilationUnit> parse(List<Path> sourceFiles) {
+        return parse(sourceFiles, null);
+    }
+
+    /**
+     * @return Compilation units in the same order as the source files they were parsed from.
+     */
+    public List<Tr.CompilationUnit> parse(List<Path> sourceFiles, @Nullable Path relativeTo) {
+        List<Path> javaSources = new ArrayList<>(new LinkedHashSet<>(sourceFiles.stream()
+                .filter(source -> source.getFileName().toString().endsWith(".java"))
+                .map(source -> source.toAbsolutePath().normalize())
+                .collect(toList())));
+
+        Map<Path, Tr.CompilationUnit> cusByPath = new HashMap<>();
+        Map<Path, Path> cacheFilesToWrite = new LinkedHashMap<>();
+
+        for (Path source : javaSources) {
+            var cacheFile = cacheDirectory.resolve(cacheKey(source, relativeTo) + CACHE_FILE_EXTENSION);
+            var cached = read(cacheFile);
+            if (cached == null) {
+                cacheFilesToWrite.put(source, cacheFile);
+            } else {
+                cusByPath.put(source, cached);
+            }
+        }
+
+        if (!cacheFilesToWrite.isEmpty()) {
+            List<Path> misses = new ArrayList<>(cacheFilesToWrite.keySet());
+
+            // cached source files aren't parsed, but javac can still enter their types from the sourcepath
+            List<Tr.CompilationUnit> parsed = new Parser(classpath, Parser.sourceRoots(javaSources, charset),
+                    charset, relaxedClassTypeMatching).parse(misses, relativeTo);
+
+            for (int i = 0; i < misses.size(); i++) {
+                var cu = parsed.get(i);
+                cusByPath.put(misses.get(i), cu);
+                write(cacheFilesToWrite.get(misses.get(i)), cu);
+            }
+
+            evict();
+        }
+
+        return javaSources.stream().map(cusByPath::get).collect(toList());
+    }
+
+    /**
+     * Removes every entry from the cache.
+     */
+    public void clear() {
+        cacheFiles().forEach(this::delete);
+    }
+
+    private String cacheKey(Path source, @Nullable Path relativeTo) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(settingsFingerprint);
+
+            // the source path is recorded on the compilation unit, so it is part of the key too
+            digest.update((relativeTo == null ? source : relativeTo.toAbsolutePath().normalize().relativize(source))
+                    .toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Files.readAllBytes(source));
+
+            var key = new StringBuilder();
+            for (byte b : digest.digest()) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Nullable
+    private Tr.CompilationUnit read(Path cacheFile) {
+        try {
+            var cu = serializer.read(Files.readAllBytes(cacheFile));
+
+            // the modification time of a cache entry is its last use, which determines eviction order
+            Files.setLastModifiedTime(cacheFile, FileTime.fromMillis(System.currentTimeMillis()));
+
+            return cu;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | UncheckedIOException e) {
+            // a corrupt or partially written entry is treated as a miss and rewritten
+            delete(cacheFile);
+            return null;
+        }
+    }
+
+    private void write(Path cacheFile, Tr.CompilationUnit cu) {
+        try {
+            // written to a temporary file first so that concurrent readers never see a partial entry
+            var temp = Files.createTempFile(cacheDirectory, "entry", ".tmp");
+            Files.write(temp, serializer.write(cu));
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void evict() {
+        List<CacheEntry> entries = cacheFiles()
+                .map(CacheEntry::new)
+                .sorted(Comparator.comparing(entry -> entry.lastUsed))
+                .collect(toList());
+
+        long size = entries.stream().mapToLong(entry -> entry.size).sum();
+        for (CacheEntry entry : entries) {
+            if (size <= maxCacheSizeBytes) {
+                break;
+            }
+            delete(entry.path);
+            size -= entry.size;
+        }
+    }
+
+    private Stream<Path> cacheFiles() {
+        try (var files = Files.list(cacheDirectory)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(CACHE_FILE_EXTENSION))
+                    .collect(toList())
+                    .stream();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void delete(Path cacheFile) {
+        try {
+            Files.deleteIfExists(cacheFile);
+        } catch (IOException ignored) {
+            // another process may be holding or have already removed this entry
+        }
+    }
+
+    private static class CacheEntry {
+        private final Path path;
+        private final long size;
+        private final FileTime lastUsed;
+
+        private CacheEntry(Path path) {
+            this.path = path;
+
+            long size = 0;
+            FileTime lastUsed = FileTime.fromMillis(0);
+            try {
+                size = Files.size(path);
+                lastUsed = Files.getLastModifiedTime(path);
+            } catch (IOException ignored) {
+                // evicted concurrently
+            }
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
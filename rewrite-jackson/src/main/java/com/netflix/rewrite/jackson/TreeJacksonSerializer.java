@@ -3,7 +3,9 @@ package com.netflix.rewrite.jackson;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.deser.DeserializationProblemHandler;
 import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
 import com.netflix.rewrite.tree.Tr;
@@ -13,6 +15,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.UUID;
 
 public class TreeJacksonSerializer {
     private final TypeReference<List<Tr.CompilationUnit>> cuListType = new TypeReference<>() {
@@ -23,7 +26,9 @@ public class TreeJacksonSerializer {
     public TreeJacksonSerializer() {
         var f = new SmileFactory();
         f.configure(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES, true);
-        this.mapper = new ObjectMapper(f).setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        this.mapper = new ObjectMapper(f)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .addHandler(new LegacyIdHandler());
     }
 
     public String writePretty(Tr.CompilationUnit cu) {
@@ -100,4 +105,25 @@ public class TreeJacksonSerializer {
             throw new UncheckedIOException(e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Trees serialized before ids became longs carry UUID ids. These are folded into a long, which preserves
+     * equality between ids within the same serialized trees. Only values of properties named {@code id} that
+     * aren't already longs are handled here, so every other long is read as strictly as ever.
+     */
+    private static class LegacyIdHandler extends DeserializationProblemHandler {
+        @Override
+        public Object handleWeirdStringValue(DeserializationContext ctxt, Class<?> targetType, String valueToConvert,
+                                             String failureMsg) throws IOException {
+            if ((targetType == long.class || targetType == Long.class) && "id".equals(ctxt.getParser().getCurrentName())) {
+                try {
+                    UUID uuid = UUID.fromString(valueToConvert.trim());
+                    return uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits();
+                } catch (IllegalArgumentException ignored) {
+                    // not a legacy id either
+                }
+            }
+            return NOT_HANDLED;
+        }
+    }
+}
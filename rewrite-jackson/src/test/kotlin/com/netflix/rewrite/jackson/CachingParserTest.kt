@@ -0,0 +1,89 @@
+/**
+ * Copyright 2016 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.rewrite.jackson
+
+import com.netflix.rewrite.source
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.nio.file.Files
+import java.nio.file.attribute.FileTime
+
+class CachingParserTest {
+    @JvmField
+    @Rule
+    val temp = TemporaryFolder()
+
+    private val sources by lazy { temp.root.toPath().resolve("src") }
+    private val cache by lazy { temp.newFolder("cache").toPath() }
+
+    @Test
+    fun unchangedSourcesAreReadFromCache() {
+        val a = temp.source("src/A.java", "public class A { B b; }").toPath()
+        val b = temp.source("src/B.java", "public class B {}").toPath()
+
+        val parsed = CachingParser(cache, Long.MAX_VALUE, null).parse(listOf(a, b), sources)
+        assertEquals(2, cache.toFile().list()!!.size)
+
+        val cached = CachingParser(cache, Long.MAX_VALUE, null).parse(listOf(a, b), sources)
+        assertEquals(parsed, cached)
+        assertEquals("B", (cached[0].classes[0].fields[0].typeExpr?.type as com.netflix.rewrite.tree.Type.Class).fullyQualifiedName)
+    }
+
+    @Test
+    fun changedSourcesAreReparsed() {
+        val a = temp.source("src/A.java", "public class A {}").toPath()
+        val parsed = CachingParser(cache, Long.MAX_VALUE, null).parse(listOf(a))
+
+        temp.source("src/A.java", "public class A { int n; }").toPath()
+        val reparsed = CachingParser(cache, Long.MAX_VALUE, null).parse(listOf(a))
+
+        assertEquals(1, reparsed[0].classes[0].fields.size)
+        assertEquals(0, parsed[0].classes[0].fields.size)
+    }
+
+    @Test
+    fun leastRecentlyUsedEntriesAreEvicted() {
+        val a = temp.source("src/A.java", "public class A {}").toPath()
+        val b = temp.source("src/B.java", "public class B {}").toPath()
+        val c = temp.source("src/C.java", "public class C {}").toPath()
+
+        fun entries() = cache.toFile().listFiles()!!.map { it.toPath() }.toSet()
+
+        CachingParser(cache, Long.MAX_VALUE, null).parse(listOf(a))
+        val aEntry = entries().single()
+
+        CachingParser(cache, Long.MAX_VALUE, null).parse(listOf(b))
+        val bEntry = (entries() - aEntry).single()
+
+        // A was cached before B, so that only reading A again makes B the least recently used
+        val now = System.currentTimeMillis()
+        Files.setLastModifiedTime(aEntry, FileTime.fromMillis(now - 20_000))
+        Files.setLastModifiedTime(bEntry, FileTime.fromMillis(now - 10_000))
+        CachingParser(cache, Long.MAX_VALUE, null).parse(listOf(a))
+
+        // room for about two and a half entries
+        val limit = (Files.size(aEntry) + Files.size(bEntry)) * 5 / 4
+        CachingParser(cache, limit, null).parse(listOf(c))
+
+        assertFalse(Files.exists(bEntry))
+        assertTrue(Files.exists(aEntry))
+        assertEquals(2, entries().size)
+    }
+}
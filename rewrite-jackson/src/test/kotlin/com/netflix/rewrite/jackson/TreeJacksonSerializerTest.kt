@@ -15,10 +15,15 @@
  */
 package com.netflix.rewrite.jackson
 
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.node.ObjectNode
+import com.fasterxml.jackson.dataformat.smile.SmileFactory
 import com.netflix.rewrite.Parser
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertTrue
 import org.junit.Test
+import java.util.*
 
 /**
  * Test that flyweights survive a serialization/deserialization cycle
@@ -56,4 +61,24 @@ open class TreeJacksonSerializerTest : Parser() {
         val aBytes = serializer.write(listOf(a))
         assertEquals(a, serializer.readList(aBytes)[0])
     }
-}
\ No newline at end of file
+
+    @Test
+    fun `legacy UUID ids are read as long ids`() {
+        val a = parse(aSource)
+
+        val smile = ObjectMapper(SmileFactory())
+        val tree = smile.readTree(serializer.write(a))
+        val uuids = mutableMapOf<Long, String>()
+        fun replaceIds(node: JsonNode) {
+            if (node is ObjectNode && node.get("id")?.isIntegralNumber == true) {
+                node.put("id", uuids.getOrPut(node.get("id").asLong()) { UUID.randomUUID().toString() })
+            }
+            node.forEach { replaceIds(it) }
+        }
+        replaceIds(tree)
+
+        val aDeser = serializer.read(smile.writeValueAsBytes(tree))
+        assertEquals(a.printTrimmed(), aDeser.printTrimmed())
+        assertEquals(aDeser.classes[0].fields[0].id, serializer.read(smile.writeValueAsBytes(tree)).classes[0].fields[0].id)
+    }
+}